@@ -0,0 +1,30 @@
+package com.github.lateralthoughts.hands_on_neo4j.branches;
+
+import static java.lang.String.format;
+
+/**
+ * Ids of a branch relationship and of the commit it points to.
+ */
+public final class BranchTip {
+
+    private final long relationshipId;
+    private final long commitId;
+
+    public BranchTip(long relationshipId, long commitId) {
+        this.relationshipId = relationshipId;
+        this.commitId = commitId;
+    }
+
+    public long getRelationshipId() {
+        return relationshipId;
+    }
+
+    public long getCommitId() {
+        return commitId;
+    }
+
+    @Override
+    public String toString() {
+        return format("BranchTip{relationshipId=%d, commitId=%d}", relationshipId, commitId);
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.lateralthoughts.hands_on_neo4j.branches;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapMaker;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * In-memory table of branch tips, by branch name.
+ *
+ * The table is an immutable map swapped on each committed change, hence lookups never lock.
+ * It is only updated once a transaction creating or deleting branch relationships is committed:
+ * rolled back transactions leave it untouched. In the meantime, the transaction writing branches
+ * has to look them up in the index, see {@link #onBranchWritten()}. Writing transactions are weakly
+ * held, so that those never completed, e.g. marked as failed, do not keep bypassing the table.
+ * Entries are hints: they are checked against the relationship they point to before being returned.
+ */
+@Component
+public class BranchTips implements TransactionEventHandler<BranchTips.BranchChanges> {
+
+    private static final String NAME = "name";
+
+    private final GraphDatabaseService graphDB;
+    private final RelationshipType branchType;
+    private final Set<Transaction> writingBranches = Collections.newSetFromMap(
+        new MapMaker().weakKeys().<Transaction, Boolean>makeMap()
+    );
+    private volatile ImmutableMap<String, BranchTip> tips = ImmutableMap.of();
+
+    @Autowired
+    public BranchTips(GraphDatabaseService graphDB, RelationTypeFinder relationshipTypes) {
+        this.graphDB = graphDB;
+        this.branchType = relationshipTypes.findRelationshipType(Branch.class);
+        graphDB.registerTransactionEventHandler(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        graphDB.unregisterTransactionEventHandler(this);
+    }
+
+    /**
+     * @return the tip of the provided branch, if known
+     */
+    public Optional<BranchTip> tipOf(String branchName) {
+        return Optional.fromNullable(tips.get(branchName));
+    }
+
+    /**
+     * Must be called within a transaction.
+     *
+     * @return the relationship of the provided branch, or null when it is unknown or
+     * the current transaction is writing branches
+     */
+    public Relationship find(String branchName) {
+        BranchTip tip = tips.get(branchName);
+        if (tip == null || isWritingBranches()) {
+            return null;
+        }
+        try {
+            Relationship relationship = graphDB.getRelationshipById(tip.getRelationshipId());
+            if (relationship.isType(branchType) && branchName.equals(relationship.getProperty(NAME, null))) {
+                return relationship;
+            }
+        } catch (NotFoundException | IllegalStateException e) {
+            // deleted since, the index knows better
+        }
+        return null;
+    }
+
+    /**
+     * Caches a branch relationship found in the index.
+     */
+    public void remember(Relationship branch) {
+        checkNotNull(branch);
+        if (isWritingBranches()) {
+            return;
+        }
+        String name = (String) branch.getProperty(NAME);
+        synchronized (this) {
+            if (!tips.containsKey(name)) {
+                tips = copyWith(tips, name, new BranchTip(branch.getId(), branch.getEndNode().getId()));
+            }
+        }
+    }
+
+    /**
+     * Flags the current transaction as writing branches, so that it does not read tips
+     * committed before it. The flag is cleared once the transaction completes, and is never
+     * seen by the next transactions of the thread.
+     */
+    public void onBranchWritten() {
+        Transaction transaction = currentTransaction();
+        if (transaction != null) {
+            writingBranches.add(transaction);
+        }
+    }
+
+    @Override
+    public BranchChanges beforeCommit(TransactionData data) throws Exception {
+        BranchChanges changes = new BranchChanges();
+        for (Relationship relationship : data.deletedRelationships()) {
+            changes.deleted.add(relationship.getId());
+        }
+        for (Relationship relationship : data.createdRelationships()) {
+            if (relationship.isType(branchType) && !data.isDeleted(relationship) && relationship.hasProperty(NAME)) {
+                changes.created.put(
+                    (String) relationship.getProperty(NAME),
+                    new BranchTip(relationship.getId(), relationship.getEndNode().getId())
+                );
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, BranchChanges changes) {
+        forgetCurrentTransaction();
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            Map<String, BranchTip> updated = new HashMap<>(tips);
+            Iterator<BranchTip> iterator = updated.values().iterator();
+            while (iterator.hasNext()) {
+                if (changes.deleted.contains(iterator.next().getRelationshipId())) {
+                    iterator.remove();
+                }
+            }
+            updated.putAll(changes.created);
+            tips = ImmutableMap.copyOf(updated);
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, BranchChanges changes) {
+        forgetCurrentTransaction();
+    }
+
+    private boolean isWritingBranches() {
+        Transaction transaction = currentTransaction();
+        return transaction != null && writingBranches.contains(transaction);
+    }
+
+    private void forgetCurrentTransaction() {
+        Transaction transaction = currentTransaction();
+        if (transaction != null) {
+            writingBranches.remove(transaction);
+        }
+    }
+
+    private Transaction currentTransaction() {
+        try {
+            return ((GraphDatabaseAPI) graphDB).getDependencyResolver()
+                .resolveDependency(TransactionManager.class)
+                .getTransaction();
+        } catch (SystemException e) {
+            return null;
+        }
+    }
+
+    private static ImmutableMap<String, BranchTip> copyWith(ImmutableMap<String, BranchTip> tips, String name, BranchTip tip) {
+        return ImmutableMap.<String, BranchTip>builder().putAll(tips).put(name, tip).build();
+    }
+
+    /**
+     * Branch relationships created and deleted by a transaction, read before it is committed.
+     */
+    static final class BranchChanges {
+
+        private final Map<String, BranchTip> created = new HashMap<>();
+        private final Set<Long> deleted = new HashSet<>();
+
+        private boolean isEmpty() {
+            return created.isEmpty() && deleted.isEmpty();
+        }
+    }
+}
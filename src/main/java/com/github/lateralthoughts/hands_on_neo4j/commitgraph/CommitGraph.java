@@ -0,0 +1,245 @@
+package com.github.lateralthoughts.hands_on_neo4j.commitgraph;
+
+import com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import static com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations.ROOT_GENERATION;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Compressed sparse row layout of the commit DAG, held in direct buffers outside of the heap.
+ *
+ * Commits get dense ordinals in insertion order. The parents of commit <code>o</code> are
+ * the ordinals stored in <code>parents[offsets[o], offsets[o + 1])</code>: a commit row is
+ * written once, when the commit is appended, parents included.
+ * Node ids are mapped to ordinals by an open-addressing hash table, also off-heap.
+ * Generations are derived from rows, see {@link #deriveGenerations(int)}, rather than read from
+ * the store: they are known even for commits the store has no generation for yet.
+ *
+ * Not thread-safe.
+ */
+final class CommitGraph {
+
+    static final int NONE = -1;
+
+    // states of commits whose generation is being derived
+    private static final int UNSET = 0;
+    private static final int QUEUED = -1;
+    private static final int EXPANDED = -2;
+
+    private static final long EMPTY_KEY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private LongBuffer nodeIds;
+    private IntBuffer generations;
+    private IntBuffer offsets;
+    private IntBuffer parents;
+    private LongBuffer hashKeys;
+    private IntBuffer hashValues;
+    private int size;
+    private int edges;
+
+    CommitGraph(int expectedCommits, int expectedEdges) {
+        int commits = Math.max(INITIAL_CAPACITY, expectedCommits);
+        nodeIds = longs(commits);
+        generations = ints(commits);
+        offsets = ints(commits + 1);
+        parents = ints(Math.max(INITIAL_CAPACITY, expectedEdges));
+        resizeHash(tableSizeFor(commits));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int edges() {
+        return edges;
+    }
+
+    /**
+     * @return the ordinal of the commit, {@link #NONE} if it is unknown
+     */
+    int ordinalOf(long nodeId) {
+        int mask = hashKeys.capacity() - 1;
+        for (int slot = hash(nodeId) & mask; ; slot = (slot + 1) & mask) {
+            long key = hashKeys.get(slot);
+            if (key == nodeId) {
+                return hashValues.get(slot);
+            }
+            if (key == EMPTY_KEY) {
+                return NONE;
+            }
+        }
+    }
+
+    long nodeId(int ordinal) {
+        return nodeIds.get(ordinal);
+    }
+
+    int generation(int ordinal) {
+        return generations.get(ordinal);
+    }
+
+    int parentCount(int ordinal) {
+        return offsets.get(ordinal + 1) - offsets.get(ordinal);
+    }
+
+    int parent(int ordinal, int index) {
+        return parents.get(offsets.get(ordinal) + index);
+    }
+
+    /**
+     * Registers a commit whose generation is to be derived, see {@link #deriveGenerations(int)}.
+     *
+     * @return the ordinal of the commit
+     */
+    int reserve(long nodeId) {
+        return reserve(nodeId, UNSET);
+    }
+
+    /**
+     * Registers a commit without writing its row yet, so that rows of commits appended
+     * together may refer to each other.
+     *
+     * @return the ordinal of the commit
+     */
+    int reserve(long nodeId, int generation) {
+        checkArgument(nodeId >= 0, "Node ids should be positive");
+        checkState(ordinalOf(nodeId) == NONE, "Commit %s already appended", nodeId);
+
+        if (size + 1 == nodeIds.capacity()) {
+            nodeIds = grow(nodeIds);
+            generations = grow(generations);
+            offsets = grow(offsets);
+        }
+        if ((size + 1) * 2 > hashKeys.capacity()) {
+            resizeHash(hashKeys.capacity() * 2);
+        }
+        int ordinal = size++;
+        nodeIds.put(ordinal, nodeId);
+        generations.put(ordinal, generation);
+        offsets.put(ordinal + 1, offsets.get(ordinal));
+        insert(nodeId, ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Writes the parents of the last reserved commits, in ordinal order.
+     */
+    void writeRow(int ordinal, int[] parentOrdinals) {
+        checkArgument(ordinal < size, "Commit %s has not been reserved", ordinal);
+        while (edges + parentOrdinals.length > parents.capacity()) {
+            parents = grow(parents);
+        }
+        offsets.put(ordinal, edges);
+        for (int parent : parentOrdinals) {
+            parents.put(edges++, parent);
+        }
+        offsets.put(ordinal + 1, edges);
+    }
+
+    /**
+     * Computes the generations of commits from the provided ordinal on, once their rows are written:
+     * a root commit has generation {@link CommitGenerations#ROOT_GENERATION}, any other commit is one more than its highest parent.
+     * Parents of these commits have either lower ordinals, with generations already derived, or ordinals in range.
+     */
+    void deriveGenerations(int first) {
+        for (int ordinal = first; ordinal < size; ordinal++) {
+            generations.put(ordinal, UNSET);
+        }
+        int[] pending = new int[16];
+        for (int ordinal = first; ordinal < size; ordinal++) {
+            int depth = 0;
+            pending[depth++] = ordinal;
+            while (depth > 0) {
+                int commit = pending[depth - 1];
+                int state = generations.get(commit);
+                if (state > UNSET) {
+                    depth--;
+                } else if (state != EXPANDED) {
+                    // parents first, then back to this commit
+                    generations.put(commit, EXPANDED);
+                    for (int i = 0; i < parentCount(commit); i++) {
+                        int parent = parent(commit, i);
+                        int parentState = generations.get(parent);
+                        checkState(parentState != EXPANDED, "Commit %s is its own ancestor", nodeId(parent));
+                        if (parentState <= UNSET) {
+                            if (depth == pending.length) {
+                                pending = Arrays.copyOf(pending, depth * 2);
+                            }
+                            pending[depth++] = parent;
+                            generations.put(parent, QUEUED);
+                        }
+                    }
+                } else {
+                    int generation = ROOT_GENERATION;
+                    for (int i = 0; i < parentCount(commit); i++) {
+                        generation = Math.max(generation, generations.get(parent(commit, i)) + 1);
+                    }
+                    generations.put(commit, generation);
+                    depth--;
+                }
+            }
+        }
+    }
+
+    private void insert(long nodeId, int ordinal) {
+        int mask = hashKeys.capacity() - 1;
+        int slot = hash(nodeId) & mask;
+        while (hashKeys.get(slot) != EMPTY_KEY) {
+            slot = (slot + 1) & mask;
+        }
+        hashValues.put(slot, ordinal);
+        hashKeys.put(slot, nodeId);
+    }
+
+    private void resizeHash(int capacity) {
+        hashKeys = longs(capacity);
+        hashValues = ints(capacity);
+        for (int i = 0; i < capacity; i++) {
+            hashKeys.put(i, EMPTY_KEY);
+        }
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            insert(nodeIds.get(ordinal), ordinal);
+        }
+    }
+
+    private static int hash(long nodeId) {
+        long mixed = nodeId * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static int tableSizeFor(int commits) {
+        return Integer.highestOneBit(Math.max(2, commits) - 1) << 2;
+    }
+
+    private static LongBuffer longs(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    private static IntBuffer ints(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static LongBuffer grow(LongBuffer buffer) {
+        LongBuffer result = longs(buffer.capacity() * 2);
+        buffer.clear();
+        result.put(buffer);
+        result.clear();
+        return result;
+    }
+
+    private static IntBuffer grow(IntBuffer buffer) {
+        IntBuffer result = ints(buffer.capacity() * 2);
+        buffer.clear();
+        result.put(buffer);
+        result.clear();
+        return result;
+    }
+}
@@ -0,0 +1,252 @@
+package com.github.lateralthoughts.hands_on_neo4j.commitgraph;
+
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.IdentifierCodec;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Memory-mapped snapshot of a {@link CommitGraph}, written next to the store so that
+ * the mirror can be restored at startup without traversing history.
+ *
+ * Layout, big-endian:
+ * <ul>
+ *     <li>header: magic, version, store creation time and random id, last transaction id,
+ *     number of commits, of edges and of identifiers, offsets of the identifier table and heap</li>
+ *     <li>rows, in ordinal order: varint node id, generation, parent count then parent ordinals</li>
+ *     <li>identifier table: one fixed-width heap offset per identifier, in identifier order</li>
+ *     <li>identifier heap: varint length and packing flag, bytes then varint ordinal, per identifier.
+ *     Hex identifiers are packed by {@link IdentifierCodec}, others are stored as UTF-8</li>
+ * </ul>
+ * Identifiers are looked up by binary search over the mapping, they are never loaded on-heap.
+ */
+final class CommitGraphFile {
+
+    private static final int MAGIC = 0x42434746;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4 + 8 + 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mapping;
+    private final long storeCreationTime;
+    private final long storeRandomId;
+    private final long lastTxId;
+    private final int commits;
+    private final int edges;
+    private final int identifiers;
+    private final int tableOffset;
+    private final int heapOffset;
+
+    private CommitGraphFile(ByteBuffer mapping) {
+        this.mapping = mapping;
+        if (mapping.capacity() < HEADER_SIZE || mapping.getInt(0) != MAGIC || mapping.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a commit graph snapshot");
+        }
+        storeCreationTime = mapping.getLong(8);
+        storeRandomId = mapping.getLong(16);
+        lastTxId = mapping.getLong(24);
+        commits = mapping.getInt(32);
+        edges = mapping.getInt(36);
+        identifiers = mapping.getInt(40);
+        tableOffset = (int) mapping.getLong(44);
+        heapOffset = (int) mapping.getLong(52);
+        if (commits < 0 || edges < 0 || identifiers < 0
+            || tableOffset < HEADER_SIZE || heapOffset != tableOffset + 4L * identifiers || heapOffset > mapping.capacity()) {
+            throw new IllegalArgumentException("Corrupted commit graph snapshot");
+        }
+    }
+
+    /**
+     * Maps the snapshot read-only.
+     *
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    static CommitGraphFile map(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer mapping = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+            return new CommitGraphFile(mapping);
+        }
+    }
+
+    /**
+     * Atomically replaces the file with a snapshot of the provided graph.
+     *
+     * @param identifiers commit identifiers mapped to their ordinal, in identifier order
+     */
+    static void write(File file, CommitGraph graph, long storeCreationTime, long storeRandomId, long lastTxId,
+                      int identifierCount, Iterator<Map.Entry<String, Integer>> identifiers) throws IOException {
+
+        ByteArrayOutputStream rows = new ByteArrayOutputStream(graph.size() * 8 + graph.edges() * 2);
+        for (int ordinal = 0; ordinal < graph.size(); ordinal++) {
+            writeVarLong(rows, graph.nodeId(ordinal));
+            writeVarLong(rows, graph.generation(ordinal));
+            writeVarLong(rows, graph.parentCount(ordinal));
+            for (int i = 0; i < graph.parentCount(ordinal); i++) {
+                writeVarLong(rows, graph.parent(ordinal, i));
+            }
+        }
+
+        ByteArrayOutputStream heap = new ByteArrayOutputStream(identifierCount * 24);
+        int[] table = new int[identifierCount];
+        int count = 0;
+        while (identifiers.hasNext()) {
+            Map.Entry<String, Integer> identifier = identifiers.next();
+            boolean packed = IdentifierCodec.isPackable(identifier.getKey());
+            byte[] bytes = packed ? IdentifierCodec.pack(identifier.getKey()) : identifier.getKey().getBytes(UTF_8);
+            table[count++] = heap.size();
+            writeVarLong(heap, (long) bytes.length << 1 | (packed ? 1 : 0));
+            heap.write(bytes);
+            writeVarLong(heap, identifier.getValue());
+        }
+        if (count != identifierCount) {
+            throw new IllegalArgumentException("Expected " + identifierCount + " identifiers, got " + count);
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            long tableOffset = HEADER_SIZE + rows.size();
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(storeCreationTime);
+            output.writeLong(storeRandomId);
+            output.writeLong(lastTxId);
+            output.writeInt(graph.size());
+            output.writeInt(graph.edges());
+            output.writeInt(identifierCount);
+            output.writeLong(tableOffset);
+            output.writeLong(tableOffset + 4L * identifierCount);
+            rows.writeTo(output);
+            for (int offset : table) {
+                output.writeInt(offset);
+            }
+            heap.writeTo(output);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    boolean belongsTo(long storeCreationTime, long storeRandomId) {
+        return this.storeCreationTime == storeCreationTime && this.storeRandomId == storeRandomId;
+    }
+
+    long lastTxId() {
+        return lastTxId;
+    }
+
+    int identifierCount() {
+        return identifiers;
+    }
+
+    /**
+     * Decodes the rows into a new graph, ordinals being preserved.
+     */
+    CommitGraph decode() {
+        CommitGraph result = new CommitGraph(commits, edges);
+        ByteBuffer rows = slice(HEADER_SIZE);
+        int[][] parents = new int[commits][];
+        for (int ordinal = 0; ordinal < commits; ordinal++) {
+            result.reserve(readVarLong(rows), (int) readVarLong(rows));
+            int[] row = new int[(int) readVarLong(rows)];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (int) readVarLong(rows);
+            }
+            parents[ordinal] = row;
+        }
+        for (int ordinal = 0; ordinal < commits; ordinal++) {
+            result.writeRow(ordinal, parents[ordinal]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the ordinal of the commit, {@link CommitGraph#NONE} if it is unknown
+     */
+    int ordinalOf(String identifier) {
+        int low = 0;
+        int high = identifiers - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            ByteBuffer entry = entry(middle);
+            int comparison = readString(entry).compareTo(identifier);
+            if (comparison == 0) {
+                return (int) readVarLong(entry);
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return CommitGraph.NONE;
+    }
+
+    /**
+     * @return identifiers mapped to their ordinal, in identifier order
+     */
+    Iterator<Map.Entry<String, Integer>> identifiers() {
+        return new AbstractIterator<Map.Entry<String, Integer>>() {
+            private int index;
+
+            @Override
+            protected Map.Entry<String, Integer> computeNext() {
+                if (index == identifiers) {
+                    return endOfData();
+                }
+                ByteBuffer entry = entry(index++);
+                String identifier = readString(entry);
+                return Maps.immutableEntry(identifier, (int) readVarLong(entry));
+            }
+        };
+    }
+
+    private ByteBuffer entry(int index) {
+        return slice(heapOffset + mapping.getInt(tableOffset + 4 * index));
+    }
+
+    private ByteBuffer slice(int offset) {
+        ByteBuffer result = mapping.duplicate();
+        result.position(offset);
+        return result;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        long header = readVarLong(buffer);
+        byte[] bytes = new byte[(int) (header >>> 1)];
+        buffer.get(bytes);
+        return (header & 1) == 1 ? IdentifierCodec.unpack(bytes) : new String(bytes, UTF_8);
+    }
+
+    private static void writeVarLong(OutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = buffer.get();
+            result |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return result;
+            }
+        }
+    }
+}
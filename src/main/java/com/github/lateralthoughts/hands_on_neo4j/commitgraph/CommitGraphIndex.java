@@ -0,0 +1,754 @@
+package com.github.lateralthoughts.hands_on_neo4j.commitgraph;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations;
+import com.google.common.collect.Iterators;
+import com.google.common.primitives.Ints;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.nioneo.xa.NeoStoreXaDataSource;
+import org.neo4j.kernel.impl.transaction.XaDataSourceManager;
+import org.neo4j.kernel.impl.transaction.xaframework.XaDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.transaction.SystemException;
+import javax.transaction.TransactionManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.tooling.GlobalGraphOperations.at;
+
+/**
+ * In-process mirror of the commit DAG, see {@link CommitGraph}, answering ancestry queries
+ * over primitive ordinals: no transaction is held and no Node nor Path is created while walking.
+ *
+ * The mirror is built from the store on first use and kept current as transactions commit:
+ * appended commits are appended to it. Rewriting history, i.e. deleting commits or parent edges
+ * or adding parents to existing commits, invalidates the mirror, which is then rebuilt on next use.
+ * As for {@link CommitGenerations}, walks rely on generations to visit children before parents.
+ * The mirror derives them from its own rows, so that they are known and consistent even when
+ * the store has not been backfilled, see {@link com.github.lateralthoughts.hands_on_neo4j.history.GenerationBackfill}.
+ *
+ * Only committed history is mirrored: commits of the current transaction are not visible yet,
+ * hence callers only query the mirror outside of any transaction, see {@link #servesCurrentThread()}.
+ * Queries take node ids and return node ids, or {@link #NO_COMMIT}.
+ *
+ * When the store lives on disk, the mirror is also saved next to it as a {@link CommitGraphFile},
+ * when rebuilt and on shutdown. At startup, the snapshot is memory-mapped and used as is if it matches
+ * the store last transaction id. Otherwise commits missing from it are appended from a scan of commit
+ * nodes, unless some of its commits have been deleted meanwhile, in which case history is reloaded.
+ * Commit identifiers stay in the snapshot: only those of commits appended since are held on-heap.
+ */
+@Component
+public class CommitGraphIndex implements TransactionEventHandler<CommitGraphIndex.GraphChanges> {
+
+    public static final long NO_COMMIT = -1;
+    public static final String SNAPSHOT_FILE = "commit-graph";
+
+    private static final String IDENTIFIER = "identifier";
+    private static final Comparator<Map.Entry<String, Integer>> IDENTIFIER_ORDER = new Comparator<Map.Entry<String, Integer>>() {
+        @Override
+        public int compare(Map.Entry<String, Integer> first, Map.Entry<String, Integer> second) {
+            return first.getKey().compareTo(second.getKey());
+        }
+    };
+
+    private final GraphDatabaseService graphDB;
+    private final Label commitLabel;
+    private final RelationshipType parentType;
+    private final File snapshotFile;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger pendingTransactions = new AtomicInteger();
+    private CommitGraph graph;
+    private CommitGraphFile snapshot;
+    private Map<String, Integer> appendedIdentifiers = new HashMap<>();
+    private boolean stale = true;
+
+    @Autowired
+    public CommitGraphIndex(GraphDatabaseService graphDB, LabelFinder labels, RelationTypeFinder relationshipTypes) {
+        this.graphDB = graphDB;
+        this.commitLabel = labels.findAllLabels(Commit.class)[0];
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+        this.snapshotFile = snapshotFileOf(graphDB);
+        graphDB.registerTransactionEventHandler(this);
+    }
+
+    /**
+     * Stops following transactions and saves the mirror, unless a transaction is being committed.
+     */
+    @PreDestroy
+    public void unregister() {
+        graphDB.unregisterTransactionEventHandler(this);
+        lock.writeLock().lock();
+        try {
+            if (snapshotFile != null && graph != null && !stale && pendingTransactions.get() == 0) {
+                save(graph, lastTxId());
+            }
+        } catch (IOException e) {
+            throw propagate(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the mirror from the store.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            graph = loadFromStore();
+            stale = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the node id of the commit, {@link #NO_COMMIT} if it is unknown
+     */
+    public long findCommit(String identifier) {
+        CommitGraph current = acquire();
+        try {
+            Integer ordinal = appendedIdentifiers.get(identifier);
+            if (ordinal == null && snapshot != null) {
+                ordinal = snapshot.ordinalOf(identifier);
+            }
+            if (ordinal == null || ordinal == CommitGraph.NONE) {
+                return NO_COMMIT;
+            }
+            return current.nodeId(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether the mirror shows the calling thread the same history as the store, which is the case
+     * when the thread is not within a transaction: a transaction may have written commits not mirrored yet
+     */
+    public boolean servesCurrentThread() {
+        try {
+            return transactionManager().getTransaction() == null;
+        } catch (SystemException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the commit is mirrored
+     */
+    public boolean contains(long nodeId) {
+        CommitGraph current = acquire();
+        try {
+            return current.ordinalOf(nodeId) != CommitGraph.NONE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of mirrored commits
+     */
+    public int size() {
+        CommitGraph current = acquire();
+        try {
+            return current.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the ancestors of the provided commit, itself included, highest generation first
+     */
+    public long[] log(long tipId, int limit) {
+        checkArgument(limit > 0, "Limit of commits to log should be strictly positive");
+
+        CommitGraph current = acquire();
+        try {
+            int tip = current.ordinalOf(tipId);
+            if (tip == CommitGraph.NONE) {
+                return new long[0];
+            }
+            long[] result = new long[Math.min(limit, current.size())];
+            int count = 0;
+            BitSet seen = new BitSet(current.size());
+            OrdinalHeap queue = new OrdinalHeap(current);
+            seen.set(tip);
+            queue.add(tip);
+            while (!queue.isEmpty() && count < result.length) {
+                int commit = queue.poll();
+                result[count++] = current.nodeId(commit);
+                for (int i = 0; i < current.parentCount(commit); i++) {
+                    int parent = current.parent(commit, i);
+                    if (!seen.get(parent)) {
+                        seen.set(parent);
+                        queue.add(parent);
+                    }
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the provided commit then its ancestors, depth first. The parents of a visited commit
+     * are only walked if the visitor says so.
+     *
+     * @return false if the provided commit is not mirrored, in which case nothing is visited
+     */
+    public boolean walkAncestors(long tipId, CommitVisitor visitor) {
+        CommitGraph current = acquire();
+        try {
+            int tip = current.ordinalOf(tipId);
+            if (tip == CommitGraph.NONE) {
+                return false;
+            }
+            int[] pending = new int[16];
+            int size = 0;
+            pending[size++] = tip;
+            while (size > 0) {
+                int commit = pending[--size];
+                if (!visitor.visit(current.nodeId(commit))) {
+                    continue;
+                }
+                for (int i = 0; i < current.parentCount(commit); i++) {
+                    if (size == pending.length) {
+                        pending = Arrays.copyOf(pending, size * 2);
+                    }
+                    pending[size++] = current.parent(commit, i);
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether the first commit is reachable from the second one
+     */
+    public boolean isAncestor(long ancestorId, long descendantId) {
+        CommitGraph current = acquire();
+        try {
+            int ancestor = current.ordinalOf(ancestorId);
+            int descendant = current.ordinalOf(descendantId);
+            if (ancestor == CommitGraph.NONE || descendant == CommitGraph.NONE) {
+                return false;
+            }
+            int lowestGeneration = current.generation(ancestor);
+            if (lowestGeneration >= current.generation(descendant)) {
+                return ancestor == descendant;
+            }
+            BitSet seen = new BitSet(current.size());
+            int[] pending = new int[16];
+            int size = 0;
+            pending[size++] = descendant;
+            seen.set(descendant);
+            while (size > 0) {
+                int commit = pending[--size];
+                if (commit == ancestor) {
+                    return true;
+                }
+                for (int i = 0; i < current.parentCount(commit); i++) {
+                    int parent = current.parent(commit, i);
+                    if (!seen.get(parent) && current.generation(parent) >= lowestGeneration) {
+                        seen.set(parent);
+                        if (size == pending.length) {
+                            pending = Arrays.copyOf(pending, size * 2);
+                        }
+                        pending[size++] = parent;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the id of a best common ancestor of both commits, i.e. one that is not an ancestor
+     * of another common ancestor, {@link #NO_COMMIT} if they have none
+     */
+    public long findMergeBase(long firstId, long secondId) {
+        CommitGraph current = acquire();
+        try {
+            int first = current.ordinalOf(firstId);
+            int second = current.ordinalOf(secondId);
+            if (first == CommitGraph.NONE || second == CommitGraph.NONE) {
+                return NO_COMMIT;
+            }
+            BitSet fromFirst = new BitSet(current.size());
+            BitSet fromSecond = new BitSet(current.size());
+            BitSet queued = new BitSet(current.size());
+            OrdinalHeap queue = new OrdinalHeap(current);
+            fromFirst.set(first);
+            fromSecond.set(second);
+            queued.set(first);
+            queue.add(first);
+            if (!queued.get(second)) {
+                queued.set(second);
+                queue.add(second);
+            }
+            while (!queue.isEmpty()) {
+                int commit = queue.poll();
+                boolean reachedFromFirst = fromFirst.get(commit);
+                boolean reachedFromSecond = fromSecond.get(commit);
+                // children come first: no common ancestor can descend from this one
+                if (reachedFromFirst && reachedFromSecond) {
+                    return current.nodeId(commit);
+                }
+                for (int i = 0; i < current.parentCount(commit); i++) {
+                    int parent = current.parent(commit, i);
+                    if (reachedFromFirst) {
+                        fromFirst.set(parent);
+                    }
+                    if (reachedFromSecond) {
+                        fromSecond.set(parent);
+                    }
+                    if (!queued.get(parent)) {
+                        queued.set(parent);
+                        queue.add(parent);
+                    }
+                }
+            }
+            return NO_COMMIT;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the commits reachable from the included commit but not from the excluded one,
+     * children first, like <code>git log excluded..included</code>
+     */
+    public long[] range(long excludedId, long includedId, int limit) {
+        checkArgument(limit > 0, "Limit of commits to log should be strictly positive");
+
+        CommitGraph current = acquire();
+        try {
+            int included = current.ordinalOf(includedId);
+            if (included == CommitGraph.NONE) {
+                return new long[0];
+            }
+            int excluded = current.ordinalOf(excludedId);
+            BitSet uninteresting = new BitSet(current.size());
+            BitSet queued = new BitSet(current.size());
+            OrdinalHeap queue = new OrdinalHeap(current);
+            if (excluded != CommitGraph.NONE) {
+                uninteresting.set(excluded);
+                queued.set(excluded);
+                queue.add(excluded);
+            }
+            int queuedInteresting = 0;
+            if (!queued.get(included)) {
+                queued.set(included);
+                queue.add(included);
+                queuedInteresting++;
+            }
+
+            long[] result = new long[Math.min(limit, current.size())];
+            int count = 0;
+            while (queuedInteresting > 0 && count < result.length) {
+                int commit = queue.poll();
+                boolean interesting = !uninteresting.get(commit);
+                if (interesting) {
+                    queuedInteresting--;
+                    result[count++] = current.nodeId(commit);
+                }
+                for (int i = 0; i < current.parentCount(commit); i++) {
+                    int parent = current.parent(commit, i);
+                    boolean wasInteresting = queued.get(parent) && !uninteresting.get(parent);
+                    if (!interesting) {
+                        uninteresting.set(parent);
+                        if (wasInteresting) {
+                            queuedInteresting--;
+                        }
+                    }
+                    if (!queued.get(parent)) {
+                        queued.set(parent);
+                        queue.add(parent);
+                        if (interesting) {
+                            queuedInteresting++;
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public GraphChanges beforeCommit(TransactionData data) throws Exception {
+        pendingTransactions.incrementAndGet();
+        GraphChanges changes = new GraphChanges();
+        for (Node node : data.createdNodes()) {
+            if (!data.isDeleted(node) && node.hasLabel(commitLabel)) {
+                changes.createdCommits.put(node.getId(), String.valueOf(node.getProperty(IDENTIFIER)));
+            }
+        }
+        for (Relationship relationship : data.createdRelationships()) {
+            if (!data.isDeleted(relationship) && relationship.isType(parentType)) {
+                changes.createdParents.add(new long[] {relationship.getStartNode().getId(), relationship.getEndNode().getId()});
+            }
+        }
+        for (Relationship relationship : data.deletedRelationships()) {
+            if (relationship.isType(parentType)) {
+                changes.rewritten.add(relationship.getEndNode().getId());
+            }
+        }
+        for (Node node : data.deletedNodes()) {
+            changes.rewritten.add(node.getId());
+        }
+        return changes;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, GraphChanges changes) {
+        if (changes == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (graph != null && !stale && !changes.isEmpty()) {
+                stale = !apply(changes);
+            }
+        } finally {
+            pendingTransactions.decrementAndGet();
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, GraphChanges changes) {
+        if (changes != null) {
+            pendingTransactions.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return false if the changes rewrite mirrored history
+     */
+    private boolean apply(GraphChanges changes) {
+        for (long id : changes.rewritten) {
+            if (graph.ordinalOf(id) != CommitGraph.NONE && !changes.createdCommits.containsKey(id)) {
+                return false;
+            }
+        }
+
+        Map<Long, List<Long>> parentsOfCreated = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> created : changes.createdCommits.entrySet()) {
+            if (graph.ordinalOf(created.getKey()) == CommitGraph.NONE) {
+                parentsOfCreated.put(created.getKey(), new ArrayList<Long>());
+            }
+        }
+        for (long[] edge : changes.createdParents) {
+            List<Long> parents = parentsOfCreated.get(edge[1]);
+            if (parents != null) {
+                parents.add(edge[0]);
+            } else if (!hasParent(edge[1], edge[0])) {
+                return false;
+            }
+        }
+
+        int first = graph.size();
+        int[] ordinals = new int[parentsOfCreated.size()];
+        int index = 0;
+        for (Long created : parentsOfCreated.keySet()) {
+            ordinals[index] = graph.reserve(created);
+            appendedIdentifiers.put(changes.createdCommits.get(created), ordinals[index++]);
+        }
+        index = 0;
+        for (List<Long> parents : parentsOfCreated.values()) {
+            int[] parentOrdinals = new int[parents.size()];
+            for (int i = 0; i < parentOrdinals.length; i++) {
+                parentOrdinals[i] = graph.ordinalOf(parents.get(i));
+                if (parentOrdinals[i] == CommitGraph.NONE) {
+                    return false;
+                }
+            }
+            graph.writeRow(ordinals[index++], parentOrdinals);
+        }
+        graph.deriveGenerations(first);
+        return true;
+    }
+
+    private boolean hasParent(long childId, long parentId) {
+        int child = graph.ordinalOf(childId);
+        int parent = graph.ordinalOf(parentId);
+        if (child == CommitGraph.NONE || parent == CommitGraph.NONE) {
+            return false;
+        }
+        for (int i = 0; i < graph.parentCount(child); i++) {
+            if (graph.parent(child, i) == parent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read-locks the mirror, once rebuilt if needed. The caller has to release the read lock.
+     */
+    private CommitGraph acquire() {
+        lock.readLock().lock();
+        if (!stale) {
+            return graph;
+        }
+        lock.readLock().unlock();
+
+        lock.writeLock().lock();
+        try {
+            if (stale) {
+                graph = graph == null ? restore() : null;
+                if (graph == null) {
+                    graph = loadFromStore();
+                }
+                stale = false;
+            }
+            lock.readLock().lock();
+            return graph;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the mirror restored from the snapshot, null if there is none or history has to be reloaded
+     */
+    private CommitGraph restore() {
+        if (snapshotFile == null || !snapshotFile.isFile()) {
+            return null;
+        }
+        try {
+            CommitGraphFile restored = CommitGraphFile.map(snapshotFile);
+            XaDataSource store = neoStoreDataSource();
+            if (!restored.belongsTo(store.getCreationTime(), store.getRandomIdentifier())) {
+                return null;
+            }
+            CommitGraph result = restored.decode();
+            result.deriveGenerations(0);
+            Map<String, Integer> appended = new HashMap<>();
+            if (restored.lastTxId() != store.getLastCommittedTxId() && !appendMissingCommits(result, restored, appended)) {
+                return null;
+            }
+            snapshot = restored;
+            appendedIdentifiers = appended;
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // unreadable snapshots are overwritten once history is reloaded
+            return null;
+        }
+    }
+
+    /**
+     * Appends commits created since the snapshot was saved, once every commit it mirrors has been checked
+     * against the store: node ids being reused, a commit may have been replaced by another one, and
+     * history may have been rewritten by transactions the mirror did not follow, e.g. before a crash.
+     *
+     * @return false if the snapshot does not mirror the commits of the store anymore
+     */
+    private boolean appendMissingCommits(CommitGraph result, CommitGraphFile restored, Map<String, Integer> appended) {
+        try (Transaction tx = graphDB.beginTx()) {
+            int known = 0;
+            List<Node> missing = new ArrayList<>();
+            try (ResourceIterator<Node> commits = at(graphDB).getAllNodesWithLabel(commitLabel).iterator()) {
+                while (commits.hasNext()) {
+                    Node commit = commits.next();
+                    int ordinal = result.ordinalOf(commit.getId());
+                    if (ordinal == CommitGraph.NONE) {
+                        missing.add(commit);
+                        continue;
+                    }
+                    if (restored.ordinalOf(identifierOf(commit)) != ordinal || !hasSameParents(result, ordinal, commit)) {
+                        return false;
+                    }
+                    known++;
+                }
+            }
+            tx.success();
+            if (known != result.size()) {
+                return false;
+            }
+
+            int first = result.size();
+            for (Node commit : missing) {
+                appended.put(identifierOf(commit), reserve(result, commit));
+            }
+            writeRows(result, first);
+            return true;
+        }
+    }
+
+    /**
+     * @return whether the row of the commit lists the parents it has in the store
+     */
+    private boolean hasSameParents(CommitGraph result, int ordinal, Node commit) {
+        List<Integer> parents = new ArrayList<>(2);
+        for (Relationship relationship : commit.getRelationships(parentType, INCOMING)) {
+            parents.add(result.ordinalOf(relationship.getStartNode().getId()));
+        }
+        if (parents.size() != result.parentCount(ordinal)) {
+            return false;
+        }
+        for (int i = 0; i < result.parentCount(ordinal); i++) {
+            if (!parents.remove((Integer) result.parent(ordinal, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CommitGraph loadFromStore() {
+        long lastTxId = snapshotFile == null ? 0 : lastTxId();
+        CommitGraph result = new CommitGraph(0, 0);
+        Map<String, Integer> identifiers = new HashMap<>();
+        try (Transaction tx = graphDB.beginTx()) {
+            try (ResourceIterator<Node> commits = at(graphDB).getAllNodesWithLabel(commitLabel).iterator()) {
+                while (commits.hasNext()) {
+                    Node commit = commits.next();
+                    identifiers.put(identifierOf(commit), reserve(result, commit));
+                }
+            }
+            writeRows(result, 0);
+            tx.success();
+        }
+
+        snapshot = null;
+        appendedIdentifiers = identifiers;
+        if (snapshotFile != null) {
+            try {
+                save(result, lastTxId);
+            } catch (IOException e) {
+                // identifiers stay on-heap until the next successful save
+            }
+        }
+        return result;
+    }
+
+    private int reserve(CommitGraph result, Node commit) {
+        return result.reserve(commit.getId());
+    }
+
+    /**
+     * Writes rows of reserved commits, from the provided ordinal on, then derives their generations.
+     * Must be called within a transaction.
+     */
+    private void writeRows(CommitGraph result, int first) {
+        for (int ordinal = first; ordinal < result.size(); ordinal++) {
+            List<Integer> parents = new ArrayList<>(2);
+            for (Relationship relationship : graphDB.getNodeById(result.nodeId(ordinal)).getRelationships(parentType, INCOMING)) {
+                int parent = result.ordinalOf(relationship.getStartNode().getId());
+                if (parent != CommitGraph.NONE) {
+                    parents.add(parent);
+                }
+            }
+            result.writeRow(ordinal, Ints.toArray(parents));
+        }
+        result.deriveGenerations(first);
+    }
+
+    /**
+     * Writes the provided mirror to the snapshot file, then maps it in place of on-heap identifiers.
+     * Identifiers are stored sorted, so new ones cannot be appended: the whole file is rewritten,
+     * in O(commits) time and I/O. Snapshots are hence only saved when the mirror is rebuilt and on shutdown.
+     */
+    private void save(CommitGraph current, long lastTxId) throws IOException {
+        List<Iterator<Map.Entry<String, Integer>>> sorted = new ArrayList<>();
+        sorted.add(new TreeMap<>(appendedIdentifiers).entrySet().iterator());
+        int count = appendedIdentifiers.size();
+        if (snapshot != null) {
+            sorted.add(snapshot.identifiers());
+            count += snapshot.identifierCount();
+        }
+        XaDataSource store = neoStoreDataSource();
+        CommitGraphFile.write(
+            snapshotFile, current, store.getCreationTime(), store.getRandomIdentifier(), lastTxId,
+            count, Iterators.mergeSorted(sorted, IDENTIFIER_ORDER)
+        );
+        snapshot = CommitGraphFile.map(snapshotFile);
+        appendedIdentifiers = new HashMap<>();
+    }
+
+    private TransactionManager transactionManager() {
+        return ((GraphDatabaseAPI) graphDB).getDependencyResolver().resolveDependency(TransactionManager.class);
+    }
+
+    private long lastTxId() {
+        return neoStoreDataSource().getLastCommittedTxId();
+    }
+
+    private XaDataSource neoStoreDataSource() {
+        return ((GraphDatabaseAPI) graphDB).getDependencyResolver()
+            .resolveDependency(XaDataSourceManager.class)
+            .getXaDataSource(NeoStoreXaDataSource.DEFAULT_DATA_SOURCE_NAME);
+    }
+
+    private static String identifierOf(Node commit) {
+        return String.valueOf(commit.getProperty(IDENTIFIER));
+    }
+
+    /**
+     * @return the snapshot file next to the store, null if the store is not on disk
+     */
+    @SuppressWarnings("deprecation")
+    private static File snapshotFileOf(GraphDatabaseService graphDB) {
+        if (!(graphDB instanceof GraphDatabaseAPI)) {
+            return null;
+        }
+        File storeDir = new File(((GraphDatabaseAPI) graphDB).getStoreDir());
+        if (!new File(storeDir, "neostore").isFile()) {
+            return null;
+        }
+        return new File(storeDir, SNAPSHOT_FILE);
+    }
+
+    /**
+     * Commit DAG changes of a transaction, read before it is committed.
+     */
+    static final class GraphChanges {
+
+        private final Map<Long, String> createdCommits = new LinkedHashMap<>();
+        private final List<long[]> createdParents = new ArrayList<>();
+        private final List<Long> rewritten = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return createdCommits.isEmpty() && createdParents.isEmpty() && rewritten.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.lateralthoughts.hands_on_neo4j.commitgraph;
+
+/**
+ * Visits commits walked by {@link CommitGraphIndex#walkAncestors(long, CommitVisitor)}.
+ */
+public interface CommitVisitor {
+
+    /**
+     * @return whether the parents of the commit have to be walked
+     */
+    boolean visit(long nodeId);
+}
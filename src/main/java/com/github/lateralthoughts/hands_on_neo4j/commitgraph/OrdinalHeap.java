@@ -0,0 +1,69 @@
+package com.github.lateralthoughts.hands_on_neo4j.commitgraph;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of commit ordinals, highest generation first, then highest ordinal.
+ * Backed by a primitive array, so that walks do not box ordinals.
+ */
+final class OrdinalHeap {
+
+    private final CommitGraph graph;
+    private int[] ordinals = new int[64];
+    private int size;
+
+    OrdinalHeap(CommitGraph graph) {
+        this.graph = graph;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int ordinal) {
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(ordinal, ordinals[parent])) {
+                break;
+            }
+            ordinals[index] = ordinals[parent];
+            index = parent;
+        }
+        ordinals[index] = ordinal;
+    }
+
+    int poll() {
+        int result = ordinals[0];
+        int last = ordinals[--size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(ordinals[child + 1], ordinals[child])) {
+                child++;
+            }
+            if (!before(ordinals[child], last)) {
+                break;
+            }
+            ordinals[index] = ordinals[child];
+            index = child;
+        }
+        ordinals[index] = last;
+        return result;
+    }
+
+    private boolean before(int first, int second) {
+        int firstGeneration = graph.generation(first);
+        int secondGeneration = graph.generation(second);
+        if (firstGeneration != secondGeneration) {
+            return firstGeneration > secondGeneration;
+        }
+        return first > second;
+    }
+}
@@ -6,14 +6,10 @@ import static com.github.lateralthoughts.hands_on_neo4j.framework.annotations.Re
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
 
-import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.Indexed;
-import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.Property;
 import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationType;
-import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.UniqueIdentifier;
 import com.github.lateralthoughts.hands_on_neo4j.framework.cypher.Cypherizable;
 import com.github.lateralthoughts.hands_on_neo4j.framework.cypher.DomainToCypher;
 
-@Indexed
 @RelationType(value = "HAS_PARENT", directed = true)
 public class ParentCommit implements Domain, Cypherizable {
 
@@ -22,14 +18,9 @@ public class ParentCommit implements Domain, Cypherizable {
     @End
     private final Commit child;
 
-    @UniqueIdentifier("parentCommitIdentifier")
-    @Property("identifier")
-    private final String identifier;
-
     public ParentCommit(Commit parent, Commit child) {
         this.parent = parent;
         this.child = child;
-        this.identifier = String.format("%s->%s", parent.getIdentifier(), child.getIdentifier());
     }
 
     public Commit getParent() {
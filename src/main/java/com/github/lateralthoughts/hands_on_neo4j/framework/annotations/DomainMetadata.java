@@ -0,0 +1,226 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
+
+import java.lang.annotation.Annotation;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.neo4j.graphdb.DynamicLabel.label;
+
+/**
+ * Immutable description of a {@link Domain} class.
+ *
+ * Everything the finders used to compute on each call (labels, relationship type,
+ * relation tips, property keys, unique identifier and index name) is either generated at
+ * compile time by {@link DomainMetadataProcessor} or resolved once by {@link DomainMetadataRegistry},
+ * and then read from here.
+ * Validation is left to the finders: this class merely records what was declared.
+ */
+public final class DomainMetadata {
+
+    private final Class<? extends Domain> domainClass;
+    private final boolean node;
+    private final boolean relationship;
+    private final ImmutableList<Label> labels;
+    private final ImmutableList<String> labelNames;
+    private final RelationshipType relationshipType;
+    private final boolean directed;
+    private final ImmutableListMultimap<Class<? extends Annotation>, FieldAccessor> annotatedFields;
+    private final ImmutableList<Entry<String, FieldAccessor>> properties;
+    private final Optional<String> duplicatePropertyKey;
+    private final ImmutableList<Entry<String, FieldAccessor>> uniqueIdentifiers;
+    private final Optional<String> indexName;
+
+    private DomainMetadata(Builder builder) {
+        this.domainClass = builder.domainClass;
+        this.node = builder.node;
+        this.relationship = builder.relationshipType != null;
+        this.labelNames = builder.labelNames.build().asList();
+        this.labels = toLabels(labelNames);
+        this.relationshipType = relationship ? DynamicRelationshipType.withName(builder.relationshipType) : null;
+        this.directed = builder.directed;
+        this.annotatedFields = builder.annotatedFields.build();
+        this.properties = builder.properties.build();
+        this.duplicatePropertyKey = findDuplicateKey(properties);
+        this.uniqueIdentifiers = builder.uniqueIdentifiers.build();
+        this.indexName = Optional.fromNullable(builder.indexName);
+    }
+
+    public static Builder builder(Class<? extends Domain> domainClass) {
+        return new Builder(domainClass);
+    }
+
+    public Class<? extends Domain> getDomainClass() {
+        return domainClass;
+    }
+
+    /**
+     * Whether the class is annotated with {@link Labeled}.
+     */
+    public boolean isNode() {
+        return node;
+    }
+
+    /**
+     * Whether the class is annotated with {@link RelationType}.
+     */
+    public boolean isRelationship() {
+        return relationship;
+    }
+
+    public boolean isAnnotated() {
+        return node || relationship;
+    }
+
+    /**
+     * @return the node labels, empty if the class is not a node abstraction
+     */
+    public ImmutableList<Label> getLabels() {
+        return labels;
+    }
+
+    public ImmutableList<String> getLabelNames() {
+        return labelNames;
+    }
+
+    /**
+     * @return the relationship type, null if the class is not a relationship abstraction
+     */
+    public RelationshipType getRelationshipType() {
+        return relationshipType;
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * @return accessors of the fields carrying the given annotation, in declaration order
+     */
+    public ImmutableList<FieldAccessor> getFieldsAnnotatedWith(Class<? extends Annotation> annotationClass) {
+        return annotatedFields.get(annotationClass);
+    }
+
+    /**
+     * @return property keys associated to their field accessor, in declaration order
+     */
+    public ImmutableList<Entry<String, FieldAccessor>> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the first property key declared more than once, if any
+     */
+    public Optional<String> getDuplicatePropertyKey() {
+        return duplicatePropertyKey;
+    }
+
+    /**
+     * @return every {@link UniqueIdentifier} key associated to its field accessor
+     */
+    public ImmutableList<Entry<String, FieldAccessor>> getUniqueIdentifiers() {
+        return uniqueIdentifiers;
+    }
+
+    public boolean isIndexed() {
+        return indexName.isPresent();
+    }
+
+    /**
+     * @return the index name, absent if the class is not annotated with {@link Indexed}
+     */
+    public Optional<String> getIndexName() {
+        return indexName;
+    }
+
+    private static ImmutableList<Label> toLabels(ImmutableList<String> labelNames) {
+        ImmutableList.Builder<Label> labels = ImmutableList.builder();
+        for (String labelName : labelNames) {
+            labels.add(label(labelName));
+        }
+        return labels.build();
+    }
+
+    private static Optional<String> findDuplicateKey(ImmutableList<Entry<String, FieldAccessor>> properties) {
+        Set<String> keys = new HashSet<>();
+        for (Entry<String, FieldAccessor> property : properties) {
+            if (!keys.add(property.getKey())) {
+                return Optional.of(property.getKey());
+            }
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Records declarations in declaration order, with keys and names already defaulted.
+     */
+    public static final class Builder {
+
+        private final Class<? extends Domain> domainClass;
+        private boolean node;
+        private final ImmutableSet.Builder<String> labelNames = ImmutableSet.builder();
+        private String relationshipType;
+        private boolean directed;
+        private final ImmutableListMultimap.Builder<Class<? extends Annotation>, FieldAccessor> annotatedFields = ImmutableListMultimap.builder();
+        private final ImmutableList.Builder<Entry<String, FieldAccessor>> properties = ImmutableList.builder();
+        private final ImmutableList.Builder<Entry<String, FieldAccessor>> uniqueIdentifiers = ImmutableList.builder();
+        private String indexName;
+
+        private Builder(Class<? extends Domain> domainClass) {
+            this.domainClass = checkNotNull(domainClass);
+        }
+
+        /**
+         * Marks the class as a node abstraction. Empty and repeated label names are ignored.
+         */
+        public Builder node(String... labelNames) {
+            node = true;
+            for (String labelName : labelNames) {
+                if (!labelName.isEmpty()) {
+                    this.labelNames.add(labelName);
+                }
+            }
+            return this;
+        }
+
+        public Builder relationship(String relationshipType, boolean directed) {
+            this.relationshipType = checkNotNull(relationshipType);
+            this.directed = directed;
+            return this;
+        }
+
+        public Builder field(Class<? extends Annotation> annotationClass, FieldAccessor field) {
+            annotatedFields.put(annotationClass, field);
+            return this;
+        }
+
+        public Builder property(String key, FieldAccessor field) {
+            properties.add(new Entry<>(key, field));
+            return this;
+        }
+
+        public Builder uniqueIdentifier(String key, FieldAccessor field) {
+            uniqueIdentifiers.add(new Entry<>(key, field));
+            return this;
+        }
+
+        public Builder indexName(String indexName) {
+            this.indexName = checkNotNull(indexName);
+            return this;
+        }
+
+        public DomainMetadata build() {
+            return new DomainMetadata(this);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.CaseFormat.UPPER_CAMEL;
+import static com.google.common.base.CaseFormat.UPPER_UNDERSCORE;
+
+/**
+ * Generates, next to each top-level class annotated with {@link Labeled} or {@link RelationType},
+ * a {@link GeneratedMetadata} named after it with a <code>_Metadata</code> suffix.
+ * {@link DomainMetadataRegistry} then serves its metadata without reflection.
+ *
+ * Annotated fields are read directly, or through their getter when they are private.
+ * Classes with a private annotated field and no such getter are skipped with a warning,
+ * and are reflected upon at runtime instead.
+ *
+ * Annotations are looked up by name, so that this processor compiles ahead of the classes it processes.
+ * Generated classes are only marked as such when a Generated annotation is available, as it moved
+ * packages in Java 9 and is missing from later runtimes without javax.annotation.
+ */
+public class DomainMetadataProcessor extends AbstractProcessor {
+
+    private static final String PACKAGE = "com.github.lateralthoughts.hands_on_neo4j.framework.annotations.";
+    private static final String LABELED = PACKAGE + "Labeled";
+    private static final String RELATION_TYPE = PACKAGE + "RelationType";
+    private static final String INDEXED = PACKAGE + "Indexed";
+    // same order as DomainMetadataRegistry.FIELD_ANNOTATIONS
+    private static final String[] FIELD_ANNOTATIONS = {
+        PACKAGE + "Property",
+        PACKAGE + "UniqueIdentifier",
+        RELATION_TYPE + ".Start",
+        RELATION_TYPE + ".End"
+    };
+    private static final String PROPERTY = FIELD_ANNOTATIONS[0];
+    private static final String UNIQUE_IDENTIFIER = FIELD_ANNOTATIONS[1];
+    private static final String SUFFIX = "_Metadata";
+    private static final String[] GENERATED_ANNOTATIONS = {
+        "javax.annotation.processing.Generated",
+        "javax.annotation.Generated"
+    };
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return ImmutableSet.of(LABELED, RELATION_TYPE);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        Set<Element> domainClasses = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            domainClasses.addAll(roundEnvironment.getElementsAnnotatedWith(annotation));
+        }
+        for (Element domainClass : domainClasses) {
+            if (domainClass.getKind() == ElementKind.CLASS && ((TypeElement) domainClass).getNestingKind() == NestingKind.TOP_LEVEL) {
+                generate((TypeElement) domainClass);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement domainClass) {
+        String source;
+        try {
+            source = render(domainClass);
+        } catch (IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, e.getMessage(), domainClass);
+            return;
+        }
+
+        String name = domainClass.getQualifiedName() + SUFFIX;
+        try (Writer output = processingEnv.getFiler().createSourceFile(name, domainClass).openWriter()) {
+            output.write(source);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + name + ": " + e.getMessage(), domainClass);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a field cannot be read without reflection
+     */
+    private String render(TypeElement domainClass) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(domainClass).getQualifiedName().toString();
+        String className = domainClass.getQualifiedName().toString();
+        String simpleName = domainClass.getSimpleName().toString();
+
+        StringBuilder fields = new StringBuilder();
+        StringBuilder declarations = new StringBuilder();
+        for (VariableElement field : ElementFilter.fieldsIn(domainClass.getEnclosedElements())) {
+            String accessor = field.getSimpleName() + "Field";
+            boolean annotated = false;
+            for (String annotation : FIELD_ANNOTATIONS) {
+                if (find(field, annotation).isPresent()) {
+                    annotated = true;
+                    declarations.append("            .field(").append(annotation).append(".class, ").append(accessor).append(")\n");
+                }
+            }
+            if (!annotated) {
+                continue;
+            }
+            appendKey(declarations, "property", field, PROPERTY, accessor);
+            appendKey(declarations, "uniqueIdentifier", field, UNIQUE_IDENTIFIER, accessor);
+            fields.append("        FieldAccessor ").append(accessor).append(" = new FieldAccessor(")
+                .append(simpleName).append(".class, ").append(literal(field.getSimpleName().toString())).append(") {\n")
+                .append("            @Override\n")
+                .append("            public Object get(Object instance) {\n")
+                .append("                return ").append(read(domainClass, field)).append(";\n")
+                .append("            }\n")
+                .append("        };\n");
+        }
+
+        StringBuilder result = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            result.append("package ").append(packageName).append(";\n\n");
+        }
+        result.append("import ").append(PACKAGE).append("DomainMetadata;\n")
+            .append("import ").append(PACKAGE).append("FieldAccessor;\n")
+            .append("import ").append(PACKAGE).append("GeneratedMetadata;\n\n");
+        Optional<String> generated = generatedAnnotation();
+        if (generated.isPresent()) {
+            result.append("@").append(generated.get()).append("(\"").append(getClass().getName()).append("\")\n");
+        }
+        result.append("public final class ").append(simpleName).append(SUFFIX).append(" implements GeneratedMetadata {\n\n")
+            .append("    @Override\n")
+            .append("    public DomainMetadata create() {\n")
+            .append(fields)
+            .append("        return DomainMetadata.builder(").append(simpleName).append(".class)\n");
+        appendTypeDeclarations(result, domainClass);
+        result.append(declarations);
+        Optional<AnnotationMirror> indexed = find(domainClass, INDEXED);
+        if (indexed.isPresent()) {
+            result.append("            .indexName(").append(literal(orDefault((String) value(indexed.get(), "value"), simpleName))).append(")\n");
+        }
+        result.append("            .build();\n")
+            .append("    }\n")
+            .append("}\n");
+        return result.toString();
+    }
+
+    private void appendTypeDeclarations(StringBuilder output, TypeElement domainClass) {
+        String simpleName = domainClass.getSimpleName().toString();
+        Optional<AnnotationMirror> labeled = find(domainClass, LABELED);
+        if (labeled.isPresent()) {
+            output.append("            .node(");
+            @SuppressWarnings("unchecked")
+            List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) value(labeled.get(), "value");
+            if (values.isEmpty()) {
+                output.append(literal(orDefault("", simpleName)));
+            }
+            for (int i = 0; i < values.size(); i++) {
+                output.append(i == 0 ? "" : ", ").append(literal((String) values.get(i).getValue()));
+            }
+            output.append(")\n");
+        }
+        Optional<AnnotationMirror> relationType = find(domainClass, RELATION_TYPE);
+        if (relationType.isPresent()) {
+            output.append("            .relationship(")
+                .append(literal(orDefault((String) value(relationType.get(), "value"), simpleName))).append(", ")
+                .append(value(relationType.get(), "directed")).append(")\n");
+        }
+    }
+
+    private void appendKey(StringBuilder output, String method, VariableElement field, String annotation, String accessor) {
+        Optional<AnnotationMirror> mirror = find(field, annotation);
+        if (mirror.isPresent()) {
+            String key = (String) value(mirror.get(), "value");
+            output.append("            .").append(method).append('(')
+                .append(literal(key.isEmpty() ? field.getSimpleName().toString() : key)).append(", ")
+                .append(accessor).append(")\n");
+        }
+    }
+
+    private String read(TypeElement domainClass, VariableElement field) {
+        String fieldName = field.getSimpleName().toString();
+        boolean isStatic = field.getModifiers().contains(Modifier.STATIC);
+        String owner = isStatic ? domainClass.getSimpleName().toString() : "((" + domainClass.getSimpleName() + ") instance)";
+        if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            return owner + "." + fieldName;
+        }
+
+        String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        for (ExecutableElement method : ElementFilter.methodsIn(domainClass.getEnclosedElements())) {
+            String methodName = method.getSimpleName().toString();
+            if ((methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized))
+                && method.getParameters().isEmpty()
+                && !method.getModifiers().contains(Modifier.PRIVATE)
+                && method.getModifiers().contains(Modifier.STATIC) == isStatic
+                && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+
+                return owner + "." + methodName + "()";
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+            "Private field %s of %s has no getter, its metadata will be resolved by reflection",
+            fieldName,
+            domainClass.getQualifiedName()
+        ));
+    }
+
+    /**
+     * @return the Generated annotation known to the compiler, if any
+     */
+    private Optional<String> generatedAnnotation() {
+        for (String annotation : GENERATED_ANNOTATIONS) {
+            if (processingEnv.getElementUtils().getTypeElement(annotation) != null) {
+                return Optional.of(annotation);
+            }
+        }
+        return Optional.absent();
+    }
+
+    private Optional<AnnotationMirror> find(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotation)) {
+                return Optional.of(mirror);
+            }
+        }
+        return Optional.absent();
+    }
+
+    private Object value(AnnotationMirror mirror, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : values.entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(name)) {
+                return value.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException("Annotation " + mirror + " has no " + name + " member");
+    }
+
+    private static String orDefault(String value, String simpleName) {
+        return value.isEmpty() ? UPPER_CAMEL.to(UPPER_UNDERSCORE, simpleName) : value;
+    }
+
+    private static String literal(String value) {
+        StringBuilder result = new StringBuilder("\"");
+        for (char character : value.toCharArray()) {
+            if (character == '"' || character == '\\') {
+                result.append('\\').append(character);
+            } else if (character < 0x20 || character > 0x7e) {
+                result.append(String.format("\\u%04x", (int) character));
+            } else {
+                result.append(character);
+            }
+        }
+        return result.append('"').toString();
+    }
+}
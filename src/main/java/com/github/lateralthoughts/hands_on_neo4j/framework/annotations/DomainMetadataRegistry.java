@@ -0,0 +1,164 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.ClassUtils;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.functional.AnnotatedFieldPredicate.ANNOTATED_FIELD;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+
+/**
+ * Resolves each {@link Domain} class once into a {@link DomainMetadata}.
+ *
+ * All finders are served from this registry. Metadata generated at compile time is used
+ * when available, so that annotated domain classes are not reflected upon at all.
+ * Other classes are reflected upon the first time they are met.
+ */
+@Component
+public class DomainMetadataRegistry {
+
+    private static final ImmutableList<Class<? extends Annotation>> FIELD_ANNOTATIONS = ImmutableList.of(
+        Property.class,
+        UniqueIdentifier.class,
+        RelationType.Start.class,
+        RelationType.End.class
+    );
+
+    private static final String GENERATED_SUFFIX = "_Metadata";
+
+    private final ClassUtils classUtils;
+    private final DomainUtils domainUtils;
+    private final ConcurrentMap<Class<? extends Domain>, DomainMetadata> metadata = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DomainMetadataRegistry(ClassUtils classUtils,
+                                  DomainUtils domainUtils) {
+        this.classUtils = checkNotNull(classUtils);
+        this.domainUtils = checkNotNull(domainUtils);
+    }
+
+    /**
+     * Returns the metadata of the provided non-null domain class, resolving it on first access.
+     *
+     * @throws NullPointerException if domainClass is null
+     */
+    public DomainMetadata get(Class<? extends Domain> domainClass) {
+        checkNotNull(domainClass);
+
+        DomainMetadata result = metadata.get(domainClass);
+        if (result != null) {
+            return result;
+        }
+        DomainMetadata resolved = resolve(domainClass);
+        result = metadata.putIfAbsent(domainClass, resolved);
+        return result == null ? resolved : result;
+    }
+
+    public DomainMetadata get(Domain domain) {
+        checkNotNull(domain);
+        return get(domain.getClass());
+    }
+
+    /**
+     * Metadata generated at compile time, when the domain class was processed by {@link DomainMetadataProcessor}.
+     */
+    static Optional<DomainMetadata> generatedMetadata(Class<? extends Domain> domainClass) {
+        try {
+            Class<?> generated = Class.forName(domainClass.getName() + GENERATED_SUFFIX, true, domainClass.getClassLoader());
+            return Optional.of(((GeneratedMetadata) generated.newInstance()).create());
+        } catch (ClassNotFoundException e) {
+            return Optional.absent();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw propagate(e);
+        }
+    }
+
+    private DomainMetadata resolve(Class<? extends Domain> domainClass) {
+        Optional<DomainMetadata> generated = generatedMetadata(domainClass);
+        if (generated.isPresent()) {
+            return generated.get();
+        }
+        return reflect(domainClass);
+    }
+
+    /**
+     * Reads the declarations of domain classes that were not processed at compile time.
+     */
+    DomainMetadata reflect(Class<? extends Domain> domainClass) {
+        DomainMetadata.Builder result = DomainMetadata.builder(domainClass);
+        if (domainUtils.isNodeClass(domainClass)) {
+            reflectLabels(domainClass, result);
+        }
+        if (domainUtils.isRelationshipClass(domainClass)) {
+            reflectRelationshipType(domainClass, result);
+        }
+        reflectFields(domainClass, result);
+        reflectIndexName(domainClass, result);
+        return result.build();
+    }
+
+    private void reflectLabels(Class<? extends Domain> domainClass, DomainMetadata.Builder result) {
+        String[] values = domainClass.getAnnotation(Labeled.class).value();
+        if (values.length == 0) {
+            result.node(classUtils.toUpperUnderscoreNotation(domainClass));
+            return;
+        }
+        result.node(values);
+    }
+
+    private void reflectRelationshipType(Class<? extends Domain> domainClass, DomainMetadata.Builder result) {
+        RelationType relationType = domainClass.getAnnotation(RelationType.class);
+        String relationshipType = relationType.value();
+        if (relationshipType.isEmpty()) {
+            relationshipType = classUtils.toUpperUnderscoreNotation(domainClass);
+        }
+        result.relationship(relationshipType, relationType.directed());
+    }
+
+    private static void reflectFields(Class<? extends Domain> domainClass, DomainMetadata.Builder result) {
+        for (Field field : domainClass.getDeclaredFields()) {
+            FieldAccessor accessor = null;
+            for (Class<? extends Annotation> annotationClass : FIELD_ANNOTATIONS) {
+                if (ANNOTATED_FIELD(annotationClass).apply(field)) {
+                    accessor = accessor == null ? FieldAccessor.of(field) : accessor;
+                    result.field(annotationClass, accessor);
+                }
+            }
+            if (field.isAnnotationPresent(Property.class)) {
+                result.property(keyOrFieldName(field.getAnnotation(Property.class).value(), accessor), accessor);
+            }
+            if (field.isAnnotationPresent(UniqueIdentifier.class)) {
+                result.uniqueIdentifier(keyOrFieldName(field.getAnnotation(UniqueIdentifier.class).value(), accessor), accessor);
+            }
+        }
+    }
+
+    private void reflectIndexName(Class<? extends Domain> domainClass, DomainMetadata.Builder result) {
+        Indexed indexed = domainClass.getAnnotation(Indexed.class);
+        if (indexed == null) {
+            return;
+        }
+        if (!indexed.value().isEmpty()) {
+            result.indexName(indexed.value());
+            return;
+        }
+        result.indexName(classUtils.toUpperUnderscoreNotation(domainClass));
+    }
+
+    private static String keyOrFieldName(String key, FieldAccessor field) {
+        if (!key.isEmpty()) {
+            return key;
+        }
+        return field.getName();
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+
+/**
+ * Reads a domain field.
+ *
+ * Accessors generated at compile time by {@link DomainMetadataProcessor} read fields directly
+ * or through their getter. Others read them through a {@link MethodHandle} bound once, when their
+ * {@link DomainMetadata} is resolved, instead of going through {@link Field#get(Object)}
+ * and its access checks on every read.
+ */
+public abstract class FieldAccessor {
+
+    private final Class<?> declaringClass;
+    private final String name;
+
+    protected FieldAccessor(Class<?> declaringClass, String name) {
+        this.declaringClass = checkNotNull(declaringClass);
+        this.name = checkNotNull(name);
+    }
+
+    static FieldAccessor of(Field field) {
+        checkNotNull(field);
+        field.setAccessible(true);
+        try {
+            return new HandleAccessor(field, MethodHandles.lookup().unreflectGetter(field).asType(HandleAccessor.GETTER_TYPE));
+        } catch (IllegalAccessException e) {
+            throw propagate(e);
+        }
+    }
+
+    public abstract Object get(Object instance);
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return declaringClass.getName() + "." + name;
+    }
+
+    private static final class HandleAccessor extends FieldAccessor {
+
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final MethodHandle getter;
+
+        private HandleAccessor(Field field, MethodHandle getter) {
+            super(field.getDeclaringClass(), field.getName());
+            this.getter = getter;
+        }
+
+        @Override
+        public Object get(Object instance) {
+            try {
+                return (Object) getter.invokeExact(instance);
+            } catch (Throwable throwable) {
+                throw propagate(throwable);
+            }
+        }
+    }
+}
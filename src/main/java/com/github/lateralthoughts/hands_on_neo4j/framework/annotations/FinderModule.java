@@ -10,13 +10,13 @@ public class FinderModule {
 
     @Bean
     @Qualifier("start")
-    public RelationTipFinder provideStartFinder() {
-        return RelationTipFinder.startFinder();
+    public RelationTipFinder provideStartFinder(DomainMetadataRegistry metadataRegistry) {
+        return RelationTipFinder.startFinder(metadataRegistry);
     }
 
     @Bean
     @Qualifier("end")
-    public RelationTipFinder provideEndFinder() {
-        return RelationTipFinder.endFinder();
+    public RelationTipFinder provideEndFinder(DomainMetadataRegistry metadataRegistry) {
+        return RelationTipFinder.endFinder(metadataRegistry);
     }
 }
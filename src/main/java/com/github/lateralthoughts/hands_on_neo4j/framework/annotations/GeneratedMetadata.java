@@ -0,0 +1,10 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
+
+/**
+ * Implemented by the metadata classes {@link DomainMetadataProcessor} generates next to each
+ * annotated domain class, named after it with a <code>_Metadata</code> suffix.
+ */
+public interface GeneratedMetadata {
+
+    DomainMetadata create();
+}
@@ -1,7 +1,6 @@
 package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
-import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.ClassUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -14,28 +13,21 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @Component
 public class IndexFinder {
 
-    private final ClassUtils classUtils;
+    private final DomainMetadataRegistry metadataRegistry;
 
     @Autowired
-    public IndexFinder(ClassUtils classUtils) {
-        this.classUtils = classUtils;
+    public IndexFinder(DomainMetadataRegistry metadataRegistry) {
+        this.metadataRegistry = metadataRegistry;
     }
     
     public String findName(Domain domainInstance) {
-        checkIsAnnotated(domainInstance);
+        checkNotNull(domainInstance);
         return findName(domainInstance.getClass());
     }
 
     public String findName(Class<? extends Domain> domainClass) {
-        String indexName = domainClass.getAnnotation(Indexed.class).value();
-        if (!indexName.isEmpty()) {
-            return indexName;
-        }
-        return classUtils.toUpperUnderscoreNotation(domainClass);
-    }
-
-    private static void checkIsAnnotated(Domain domainClass) {
-        checkNotNull(domainClass);
-        checkArgument(domainClass.getClass().isAnnotationPresent(Indexed.class));
+        DomainMetadata metadata = metadataRegistry.get(domainClass);
+        checkArgument(metadata.isIndexed());
+        return metadata.getIndexName().get();
     }
 }
@@ -1,24 +1,15 @@
 package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
-import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.ClassUtils;
-import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.ImmutableList;
 import org.neo4j.graphdb.Label;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Predicates.*;
-import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
-import static org.neo4j.graphdb.DynamicLabel.label;
 
 /**
  * Utility class responsible for Neo4J label resolution.
@@ -31,29 +22,15 @@ import static org.neo4j.graphdb.DynamicLabel.label;
 @Component
 public class LabelFinder {
 
-    private final ClassUtils classUtils;
-    private final DomainUtils domainUtils;
+    private final DomainMetadataRegistry metadataRegistry;
 
     @Autowired
-    public LabelFinder(ClassUtils classUtils,
-                       DomainUtils domainUtils) {
-        this.classUtils = classUtils;
-        this.domainUtils = checkNotNull(domainUtils);
+    public LabelFinder(DomainMetadataRegistry metadataRegistry) {
+        this.metadataRegistry = checkNotNull(metadataRegistry);
     }
 
     public Collection<String> findAllNames(Class<? extends Domain> entity) {
-        return FluentIterable.from(findAll(entity))
-            .transform(new Function<Label, String>() {
-                @Override
-                public String apply(org.neo4j.graphdb.Label input) {
-                    if (input == null) {
-                        return null;
-                    }
-                    return input.name();
-                }
-            })
-            .filter(notNull())
-            .toList();
+        return findNodeMetadata(entity).getLabelNames();
     }
 
     /**
@@ -70,47 +47,17 @@ public class LabelFinder {
 
     @VisibleForTesting
     Collection<org.neo4j.graphdb.Label> findAll(Class<? extends Domain> entity) {
-        checkIsDomainNode(entity);
-
-        String[] values = entity.getAnnotation(Labeled.class).value();
-        if (values.length > 0) {
-            return parseLabels(values);
-        }
-        return defaultLabel(entity);
+        return findNodeMetadata(entity).getLabels();
     }
 
-    private void checkIsDomainNode(Class<? extends Domain> domainInstance) {
-        if (!domainUtils.isNodeClass(domainInstance)) {
+    private DomainMetadata findNodeMetadata(Class<? extends Domain> entity) {
+        DomainMetadata metadata = metadataRegistry.get(entity);
+        if (!metadata.isNode()) {
             throw new IllegalArgumentException(format(
                 "Domain class %s should be annotated with @Labeled",
-                domainInstance.getClass().getSimpleName()
+                entity.getSimpleName()
             ));
         }
-    }
-
-    private void checkSingleLabel(Domain entity, Collection<org.neo4j.graphdb.Label> labels) {
-        int size = labels.size();
-        checkArgument(
-            size == 1,
-            format("%d label values found on class %s. Expected 1.", size, entity.getClass().getSimpleName())
-        );
-    }
-
-    private Collection<org.neo4j.graphdb.Label> parseLabels(String[] values) {
-        return FluentIterable.from(newArrayList(values))
-            .filter(not(equalTo("")))
-            .transform(
-                new Function<String, org.neo4j.graphdb.Label>() {
-                    @Override
-                    public org.neo4j.graphdb.Label apply(String input) {
-                        return label(input);
-                    }
-                }
-            )
-            .toSet();
-    }
-
-    private Collection<org.neo4j.graphdb.Label> defaultLabel(Class<? extends Domain> entityClass) {
-        return ImmutableList.of(label(classUtils.toUpperUnderscoreNotation(entityClass)));
+        return metadata;
     }
 }
@@ -2,25 +2,15 @@ package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
 import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
-import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
-import com.google.common.base.Predicate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 
-import static com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry.asKeys;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.base.Throwables.propagate;
-import static com.google.common.collect.Collections2.filter;
-import static com.google.common.collect.Collections2.transform;
 import static com.google.common.collect.ImmutableList.Builder;
 import static com.google.common.collect.ImmutableList.builder;
-import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
 
 /**
@@ -33,23 +23,12 @@ import static java.lang.String.format;
 @Component
 public class PropertyFinder {
 
-    private final DomainUtils domainUtils;
-    private final Class<? extends Annotation> annotationClass;
+    private final DomainMetadataRegistry metadataRegistry;
 
     @Autowired
-    public PropertyFinder(DomainUtils domainUtils) {
-        this(domainUtils, Property.class);
-    }
-
-    PropertyFinder(DomainUtils domainUtils, 
-                   Class<? extends Annotation> annotationClass) {
-        this.domainUtils = domainUtils;
-        this.annotationClass = annotationClass;
-        checkState(domainUtils != null);
-        checkState(
-            isSupported(annotationClass),
-            "Annotation class should be @Property or annotated with @Property"
-        );
+    public PropertyFinder(DomainMetadataRegistry metadataRegistry) {
+        this.metadataRegistry = metadataRegistry;
+        checkState(metadataRegistry != null);
     }
 
     /**
@@ -63,90 +42,62 @@ public class PropertyFinder {
      * @return an *immutable* collection of the actual properties
      */
     public Collection<Entry<String,Object>> findAll(Domain entity) {
-        domainUtils.checkIsAnnotatedDomain(entity.getClass());
+        DomainMetadata metadata = findAnnotatedMetadata(entity);
+        checkNoDuplicates(metadata);
 
         Builder<Entry<String,Object>> result = builder();
 
-        try {
-            for (Field field : filterAnnotatedFields(entity)) {
-                String key = computeKey(entity, result, field);
-                result.add(new Entry<> (key, field.get(entity)));
-            }
-        } catch (IllegalAccessException
-            | NoSuchMethodException
-            | InvocationTargetException e) {
-            throw propagate(e);
+        for (Entry<String, FieldAccessor> property : metadata.getProperties()) {
+            result.add(new Entry<>(property.getKey(), property.getValue().get(entity)));
         }
 
         return result.build();
     }
 
-    public Entry<String, Object> findSingle(Domain entity) {
-        Collection<Field> fields = filterAnnotatedFields(entity);
-        checkArgument(fields.size() == 1);
-        try {
-            Field field = fields.iterator().next();
-            String key = getPropertyNameOrDefault(field);
-            return new Entry<>(key, field.get(entity));
-        }
-        catch (IllegalAccessException
-            | NoSuchMethodException
-            | InvocationTargetException e) {
-            throw propagate(e);
-        }
-    }
-
-    String getPropertyNameOrDefault(Field field) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        field.setAccessible(true);
-        String propertyName = getPropertyName(field);
-        if (!propertyName.isEmpty()) {
-            return propertyName;
-        }
-        return field.getName();
+    /**
+     * Same as {@link #findAll(Domain)}, except that property values are not read:
+     * each property key comes with the accessor of its field, so callers can read
+     * values lazily without allocating intermediate entries.
+     */
+    public Collection<Entry<String, FieldAccessor>> findAllAccessors(Domain entity) {
+        return findAllAccessors(entity.getClass());
     }
 
-    private boolean isSupported(Class<? extends Annotation> annotationClass) {
-        return annotationClass.equals(Property.class)
-            || annotationClass.isAnnotationPresent(Property.class);
+    public Collection<Entry<String, FieldAccessor>> findAllAccessors(Class<? extends Domain> entityClass) {
+        DomainMetadata metadata = findAnnotatedMetadata(entityClass);
+        checkNoDuplicates(metadata);
+        return metadata.getProperties();
     }
 
-    private Collection<Field> filterAnnotatedFields(Domain entity) {
-        return filter(
-            newArrayList(entity.getClass().getDeclaredFields()),
-            annotatedPropertiesPredicate()
-        );
+    public Entry<String, Object> findSingle(Domain entity) {
+        Collection<Entry<String, FieldAccessor>> properties = metadataRegistry.get(entity).getProperties();
+        checkArgument(properties.size() == 1);
+        Entry<String, FieldAccessor> property = properties.iterator().next();
+        return new Entry<>(property.getKey(), property.getValue().get(entity));
     }
 
-    private String computeKey(Domain entity,
-                              Builder<Entry<String, Object>> properties,
-                              Field field) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-
-        String key = getPropertyNameOrDefault(field);
-        checkNoDuplicates(transform(properties.build(), asKeys()), key, entity);
-        return key;
+    private DomainMetadata findAnnotatedMetadata(Domain entity) {
+        return findAnnotatedMetadata(entity.getClass());
     }
 
-    private String getPropertyName(Field field) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
-        Annotation annotation = field.getAnnotation(annotationClass);
-        return annotationClass.getMethod("value").invoke(annotation).toString();
+    private DomainMetadata findAnnotatedMetadata(Class<? extends Domain> entityClass) {
+        DomainMetadata metadata = metadataRegistry.get(entityClass);
+        if (!metadata.isAnnotated()) {
+            throw new IllegalArgumentException(format(
+                "Class %s should either be annotated with @Labeled or @RelationType",
+                entityClass.getSimpleName()
+            ));
+        }
+        return metadata;
     }
 
-    private void checkNoDuplicates(Collection<String> keys, String key, Domain entity) {
-        if (keys.contains(key)) {
+    private void checkNoDuplicates(DomainMetadata metadata) {
+        if (metadata.getDuplicatePropertyKey().isPresent()) {
             throw new IllegalArgumentException(format(
                 "Domain class %s declares at least twice property name \"%s\"",
-                entity.getClass().getSimpleName(),
-                key
+                metadata.getDomainClass().getSimpleName(),
+                metadata.getDuplicatePropertyKey().get()
             ));
         }
     }
-
-    private Predicate<Field> annotatedPropertiesPredicate() {
-        return new Predicate<Field>() {
-            @Override
-            public boolean apply(Field field) {
-                return field.isAnnotationPresent(Property.class);
-            }
-        };
-    }
 }
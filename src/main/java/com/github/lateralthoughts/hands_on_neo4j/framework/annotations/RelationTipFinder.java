@@ -1,55 +1,46 @@
 package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
 
-import static com.github.lateralthoughts.hands_on_neo4j.framework.functional.AnnotatedFieldPredicate.ANNOTATED_FIELD;
-import static com.google.common.base.Throwables.propagate;
-import static com.google.common.collect.FluentIterable.from;
-import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
 import java.util.Collection;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
 
 class RelationTipFinder {
 
+    private final DomainMetadataRegistry metadataRegistry;
     private final Class<? extends Annotation> tipClass;
 
-    private RelationTipFinder(Class<? extends Annotation> tipClass) {
+    private RelationTipFinder(DomainMetadataRegistry metadataRegistry,
+                              Class<? extends Annotation> tipClass) {
+        this.metadataRegistry = metadataRegistry;
         this.tipClass = tipClass;
     }
 
-    static RelationTipFinder startFinder() {
-        return new RelationTipFinder(RelationType.Start.class);
+    static RelationTipFinder startFinder(DomainMetadataRegistry metadataRegistry) {
+        return new RelationTipFinder(metadataRegistry, RelationType.Start.class);
     }
 
-    static RelationTipFinder endFinder() {
-        return new RelationTipFinder(RelationType.End.class);
+    static RelationTipFinder endFinder(DomainMetadataRegistry metadataRegistry) {
+        return new RelationTipFinder(metadataRegistry, RelationType.End.class);
     }
 
     public Domain find(Domain domain) {
-        Field field = findStartField(domain);
-        try {
-            return (Domain) field.get(domain);
-        } catch (IllegalAccessException e) {
-            throw propagate(e);
-        }
+        return (Domain) findTipField(domain).get(domain);
     }
 
-    private Field findStartField(Domain domain) {
+    private FieldAccessor findTipField(Domain domain) {
         Class<? extends Domain> domainClass = domain.getClass();
-        Collection<Field> startFields = from(newArrayList(domainClass.getDeclaredFields()))
-            .filter(ANNOTATED_FIELD(tipClass))
-            .toList();
+        Collection<FieldAccessor> tipFields = metadataRegistry.get(domainClass).getFieldsAnnotatedWith(tipClass);
 
-        assertThatOnlyOneFieldIsAnnotated(domainClass, startFields);
+        assertThatOnlyOneFieldIsAnnotated(domainClass, tipFields);
 
-        return startFields.iterator().next();
+        return tipFields.iterator().next();
     }
 
     private void assertThatOnlyOneFieldIsAnnotated(Class<? extends Domain> domainClass,
-                                                   Collection<Field> startFields) {
+                                                   Collection<FieldAccessor> startFields) {
         
         if (startFields.size() == 0) {
             throw new IllegalArgumentException(
@@ -1,16 +1,11 @@
 package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
-import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.ClassUtils;
-import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
-import org.neo4j.graphdb.DynamicRelationshipType;
 import org.neo4j.graphdb.RelationshipType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import static com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTipFinder.endFinder;
-import static com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTipFinder.startFinder;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
 
@@ -25,19 +20,16 @@ import static java.lang.String.format;
 @Component
 public class RelationTypeFinder {
 
-    private final ClassUtils classUtils;
-    private final DomainUtils domainUtils;
+    private final DomainMetadataRegistry metadataRegistry;
     private final RelationTipFinder startFinder;
     private final RelationTipFinder endFinder;
 
     @Autowired
-    public RelationTypeFinder(ClassUtils classUtils,
-                              DomainUtils domainUtils,
+    public RelationTypeFinder(DomainMetadataRegistry metadataRegistry,
                               @Qualifier("start") RelationTipFinder startFinder,
                               @Qualifier("end") RelationTipFinder endFinder) {
 
-        this.classUtils = classUtils;
-        this.domainUtils = domainUtils;
+        this.metadataRegistry = metadataRegistry;
         this.startFinder = startFinder;
         this.endFinder = endFinder;
     }
@@ -51,13 +43,7 @@ public class RelationTypeFinder {
     }
 
     public RelationshipType findRelationshipType(Class<? extends Domain> domain) {
-        checkIsDomainRelationshipClass(domain);
-
-        String relationshipType = getRelationshipType(domain);
-        if (!relationshipType.isEmpty()) {
-            return DynamicRelationshipType.withName(relationshipType);
-        }
-        return defaultRelationshipType(domain);
+        return findRelationshipMetadata(domain).getRelationshipType();
     }
 
     public String findRelationshipName(Domain domain) {
@@ -65,13 +51,13 @@ public class RelationTypeFinder {
     }
 
     public Domain findStart(Domain domain) {
-        checkIsDomainRelationshipClass(domain.getClass());
-        return startFinder().find(domain);
+        findRelationshipMetadata(domain.getClass());
+        return startFinder.find(domain);
     }
 
     public Domain findEnd(Domain domain) {
-        checkIsDomainRelationshipClass(domain.getClass());
-        return endFinder().find(domain);
+        findRelationshipMetadata(domain.getClass());
+        return endFinder.find(domain);
     }
 
     public boolean isDirected(Domain domain) {
@@ -79,26 +65,18 @@ public class RelationTypeFinder {
     }
 
     public boolean isDirected(Class<? extends Domain> domain) {
-        checkIsDomainRelationshipClass(domain);
-        RelationType annotation = domain.getAnnotation(RelationType.class);
-        return annotation.directed();
+        return findRelationshipMetadata(domain).isDirected();
     }
 
-    private void checkIsDomainRelationshipClass(Class<? extends Domain> domainInstance) {
-        checkNotNull(domainInstance);
-        if (!domainUtils.isRelationshipClass(domainInstance)) {
+    private DomainMetadata findRelationshipMetadata(Class<? extends Domain> domainClass) {
+        checkNotNull(domainClass);
+        DomainMetadata metadata = metadataRegistry.get(domainClass);
+        if (!metadata.isRelationship()) {
             throw new IllegalArgumentException(format(
                 "Domain class %s should be annotated with @RelationType",
-                domainInstance.getClass().getSimpleName()
+                domainClass.getSimpleName()
             ));
         }
-    }
-
-    private String getRelationshipType(Class<? extends Domain> domain) {
-        return domain.getAnnotation(RelationType.class).value();
-    }
-
-    private RelationshipType defaultRelationshipType(Class<? extends Domain> domainClass) {
-        return DynamicRelationshipType.withName(classUtils.toUpperUnderscoreNotation(domainClass));
+        return metadata;
     }
 }
@@ -2,108 +2,105 @@ package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
 import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
-import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
-import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Throwables.propagate;
-import static com.google.common.collect.Collections2.filter;
-import static com.google.common.collect.Lists.newArrayList;
 
 @Component
 public class UniqueIdentifierFinder {
 
-    private final DomainUtils domainUtils;
-    private final PropertyFinder propertyFinder;
+    private final DomainMetadataRegistry metadataRegistry;
 
     @Autowired
-    public UniqueIdentifierFinder(DomainUtils domainUtils) {
-        this.domainUtils = domainUtils;
-        this.propertyFinder = new PropertyFinder(domainUtils, UniqueIdentifier.class);
+    public UniqueIdentifierFinder(DomainMetadataRegistry metadataRegistry) {
+        this.metadataRegistry = metadataRegistry;
     }
     
     public Entry<String, Object> findSingleKeyValue(Domain domainInstance) {
         checkNotNull(domainInstance);
 
-        try {
-            Field identityField = getUniqueIdentifier(domainInstance.getClass());
-            String propertyName = propertyFinder.getPropertyNameOrDefault(identityField);
-            return new Entry<>(propertyName, identityField.get(domainInstance));
-        } catch (IllegalAccessException
-            | NoSuchMethodException
-            | InvocationTargetException e) {
-            throw propagate(e);
-        }
+        Entry<String, FieldAccessor> identity = getUniqueIdentifier(domainInstance.getClass());
+        return new Entry<>(identity.getKey(), identity.getValue().get(domainInstance));
     }
 
     public String findSingleKey(Class<? extends Domain> domainClass) {
         checkNotNull(domainClass);
 
-        try {
-            Field identityField = getUniqueIdentifier(domainClass);
-            return propertyFinder.getPropertyNameOrDefault(identityField);
-        } catch (IllegalAccessException
-            | NoSuchMethodException
-            | InvocationTargetException e) {
-            throw propagate(e);
-        }
+        return getUniqueIdentifier(domainClass).getKey();
+    }
+
+    /**
+     * @return whether the domain class declares a unique identifier, relationships being allowed not to
+     */
+    public boolean isIdentified(Class<? extends Domain> domainClass) {
+        checkNotNull(domainClass);
+
+        DomainMetadata metadata = metadataRegistry.get(domainClass);
+        checkIsAnnotatedDomain(metadata);
+        return !metadata.getUniqueIdentifiers().isEmpty();
     }
 
-    private Field getUniqueIdentifier(Class<? extends Domain> domainClass) {
+    /**
+     * Returns the unique identifier key along with the accessor of its field.
+     */
+    public Entry<String, FieldAccessor> findSingleAccessor(Class<? extends Domain> domainClass) {
         checkNotNull(domainClass);
-        domainUtils.checkIsAnnotatedDomain(domainClass);
 
-        Collection<Field> fields = filter(newArrayList(domainClass.getDeclaredFields()), annotatedUniquePropertyPredicate());
-        checkOnlyOnePropertyIsAnnotated(domainClass, fields);
-        return fields.iterator().next();
+        return getUniqueIdentifier(domainClass);
+    }
+
+    private Entry<String, FieldAccessor> getUniqueIdentifier(Class<? extends Domain> domainClass) {
+        DomainMetadata metadata = metadataRegistry.get(domainClass);
+        checkIsAnnotatedDomain(metadata);
+
+        Collection<Entry<String, FieldAccessor>> identifiers = metadata.getUniqueIdentifiers();
+        checkOnlyOnePropertyIsAnnotated(domainClass, identifiers);
+        return identifiers.iterator().next();
+    }
+
+    private void checkIsAnnotatedDomain(DomainMetadata metadata) {
+        if (!metadata.isAnnotated()) {
+            throw new IllegalArgumentException(String.format(
+                "Class %s should either be annotated with @Labeled or @RelationType",
+                metadata.getDomainClass().getSimpleName()
+            ));
+        }
     }
 
-    private void checkOnlyOnePropertyIsAnnotated(Class<? extends Domain> domainClass, Collection<Field> fields) {
+    private void checkOnlyOnePropertyIsAnnotated(Class<? extends Domain> domainClass, Collection<Entry<String, FieldAccessor>> identifiers) {
         String simpleClassName = domainClass.getSimpleName();
-        if (fields.size() == 0) {
+        if (identifiers.size() == 0) {
             throw new IllegalArgumentException(String.format(
                 "Domain class %s does not declares any @UniqueIdentifier property",
                 simpleClassName
             ));
         }
-        if (fields.size() > 1) {
+        if (identifiers.size() > 1) {
             throw new IllegalArgumentException(String.format(
                 "Domain class %s declares too many @UniqueIdentifier property: %s",
                 simpleClassName,
-                Joiner.on(", ").skipNulls().join(convertFields(fields))
+                Joiner.on(", ").skipNulls().join(convertFields(identifiers))
             ));
         }
     }
 
-    private Predicate<Field> annotatedUniquePropertyPredicate() {
-        return new Predicate<Field>() {
-            @Override
-            public boolean apply(Field field) {
-                return field.isAnnotationPresent(UniqueIdentifier.class);
-            }
-        };
-    }
-
-    private ImmutableList<String> convertFields(Collection<Field> fields) {
+    private ImmutableList<String> convertFields(Collection<Entry<String, FieldAccessor>> identifiers) {
         return FluentIterable
-            .from(fields)
-            .transform(new Function<Field, String>() {
+            .from(identifiers)
+            .transform(new Function<Entry<String, FieldAccessor>, String>() {
                 @Override
-                public String apply(Field input) {
+                public String apply(Entry<String, FieldAccessor> input) {
                     if (input == null) {
                         return null;
                     }
-                    return input.getName();
+                    return input.getValue().getName();
                 }
             })
             .toList();
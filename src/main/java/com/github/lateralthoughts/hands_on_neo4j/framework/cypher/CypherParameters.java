@@ -0,0 +1,54 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects parameter values while a statement is rendered and names them
+ * after their position: p0, p1...
+ */
+final class CypherParameters {
+
+    private final String prefix;
+    private final String suffix;
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    private CypherParameters(String prefix, String suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Values are referred to as statement parameters: {p0}, {p1}...
+     */
+    static CypherParameters placeholders() {
+        return new CypherParameters("{", "}");
+    }
+
+    /**
+     * Values are referred to as fields of the provided row identifier: row.p0, row.p1...
+     */
+    static CypherParameters rowFields(String row) {
+        return new CypherParameters(row + ".", "");
+    }
+
+    /**
+     * Registers a value and appends its placeholder to the output.
+     */
+    void append(Object value, StringBuilder output) {
+        output.append(register(value));
+    }
+
+    /**
+     * Registers a value and returns its placeholder, for statements referring to it more than once.
+     */
+    String register(Object value) {
+        String name = "p" + values.size();
+        values.put(name, value);
+        return prefix + name + suffix;
+    }
+
+    Map<String, Object> values() {
+        return values;
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cypher query text along with the parameters its placeholders refer to.
+ *
+ * The query text only depends on the rendered domain classes, not on their values,
+ * so that the execution engine can reuse the same plan.
+ */
+public final class CypherStatement {
+
+    private final String query;
+    private final ImmutableMap<String, Object> parameters;
+
+    public CypherStatement(String query, Map<String, Object> parameters) {
+        this.query = checkNotNull(query);
+        this.parameters = ImmutableMap.copyOf(parameters);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public ImmutableMap<String, Object> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CypherStatement other = (CypherStatement) o;
+        return query.equals(other.query) && parameters.equals(other.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(query, parameters);
+    }
+
+    @Override
+    public String toString() {
+        return query + " " + parameters;
+    }
+}
@@ -5,4 +5,16 @@ import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
 interface CypherVisitor {
 
     public String visit(Domain domain);
+
+    /**
+     * Appends the Cypher representation of the domain instance to the provided output.
+     */
+    public void visit(Domain domain, StringBuilder output);
+
+    /**
+     * Appends the Cypher representation of the domain instance to the provided output,
+     * replacing property values with placeholders registered in the provided parameters.
+     * Values are rendered inline when parameters are null.
+     */
+    public void visit(Domain domain, StringBuilder output, CypherParameters parameters);
 }
@@ -2,41 +2,186 @@ package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
 import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 @Component
 public class DomainToCypher {
 
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Buffers above this capacity are not kept around for reuse.
+     */
+    private static final int MAX_REUSED_BUFFER_CAPACITY = 8192;
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
     private final DomainUtils domainUtils;
     private final NodeVisitor nodeVisitor;
     private final RelationVisitor relationVisitor;
+    private final UpsertVisitor upsertVisitor;
 
     @Autowired
     public DomainToCypher(DomainUtils domainUtils,
                           NodeVisitor nodeVisitor,
-                          RelationVisitor relationVisitor) {
-        
+                          RelationVisitor relationVisitor,
+                          UpsertVisitor upsertVisitor) {
+
         this.domainUtils = domainUtils;
         this.nodeVisitor = nodeVisitor;
         this.relationVisitor = relationVisitor;
+        this.upsertVisitor = upsertVisitor;
     }
 
     public String cypherize(Domain domain) {
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        try {
+            return cypherize(domain, buffer).toString();
+        } finally {
+            if (buffer.capacity() > MAX_REUSED_BUFFER_CAPACITY) {
+                BUFFERS.remove();
+            }
+        }
+    }
+
+    /**
+     * Appends the Cypher representation of the provided domain instance to the
+     * caller-supplied output, without building intermediate strings.
+     *
+     * @return the provided output
+     */
+    public StringBuilder cypherize(Domain domain, StringBuilder output) {
+        checkNotNull(output);
+        return cypherize(domain, output, null);
+    }
+
+    /**
+     * Renders the provided domain instance with {p0}-style placeholders instead of inline values.
+     * The query text only depends on the domain class, hence can be cached by the execution engine.
+     */
+    public CypherStatement cypherizeParameterized(Domain domain) {
+        CypherParameters parameters = CypherParameters.placeholders();
+        String query = cypherize(domain, new StringBuilder(), parameters).toString();
+        return new CypherStatement(query, parameters.values());
+    }
+
+    /**
+     * Renders an idempotent, parameterized statement.
+     *
+     * Nodes are merged on their unique identifier property before the remaining
+     * properties are set. Relationships are uniquely created between endpoints matched
+     * by their unique identifier: those endpoints are expected to exist already.
+     */
+    public CypherStatement cypherizeUpsert(Domain domain) {
+        checkAnnotated(domain);
+
+        CypherParameters parameters = CypherParameters.placeholders();
+        StringBuilder output = new StringBuilder();
+        upsertVisitor.visit(domain, output, parameters);
+        return new CypherStatement(output.toString(), parameters.values());
+    }
+
+    /**
+     * @see {@link this#cypherizeBatch(Iterable, int)}
+     */
+    public ImmutableList<CypherStatement> cypherizeBatch(Iterable<? extends Domain> domains) {
+        return cypherizeBatch(domains, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Renders one CREATE statement per batch of at most batchSize node instances.
+     * Each statement iterates over a single "rows" parameter, a list holding the
+     * property values of each instance, so that N instances cost N / batchSize round trips.
+     *
+     * @throws IllegalArgumentException if instances are not all of the same node class
+     */
+    public ImmutableList<CypherStatement> cypherizeBatch(Iterable<? extends Domain> domains, int batchSize) {
+        checkNotNull(domains);
+        checkArgument(batchSize > 0, "Batch size should be strictly positive");
+
+        ImmutableList.Builder<CypherStatement> statements = ImmutableList.builder();
+        Class<? extends Domain> domainClass = null;
+        String pattern = null;
+        StringBuilder buffer = new StringBuilder();
+
+        for (List<? extends Domain> batch : Iterables.partition(domains, batchSize)) {
+            ImmutableList.Builder<Map<String, Object>> rows = ImmutableList.builder();
+            for (Domain domain : batch) {
+                checkNotNull(domain);
+                if (domainClass == null) {
+                    domainClass = checkBatchable(domain);
+                }
+                checkSameClass(domainClass, domain);
+
+                CypherParameters row = CypherParameters.rowFields("row");
+                buffer.setLength(0);
+                nodeVisitor.visit(domain, buffer, row);
+                pattern = buffer.toString();
+                rows.add(ImmutableMap.copyOf(row.values()));
+            }
+            statements.add(new CypherStatement(
+                "WITH {rows} AS rows FOREACH (row IN rows | CREATE " + pattern + ")",
+                ImmutableMap.<String, Object>of("rows", rows.build())
+            ));
+        }
+        return statements.build();
+    }
+
+    private Class<? extends Domain> checkBatchable(Domain domain) {
+        if (!domainUtils.isNodeClass(domain)) {
+            throw new IllegalArgumentException(String.format(
+                "Domain class %s is not a node abstraction and cannot be created in batch",
+                domain.getClass().getSimpleName()
+            ));
+        }
+        return domain.getClass();
+    }
+
+    private static void checkSameClass(Class<? extends Domain> domainClass, Domain domain) {
+        if (!domainClass.equals(domain.getClass())) {
+            throw new IllegalArgumentException(String.format(
+                "Batch should only contain %s instances, found %s",
+                domainClass.getSimpleName(),
+                domain.getClass().getSimpleName()
+            ));
+        }
+    }
+
+    private StringBuilder cypherize(Domain domain, StringBuilder output, CypherParameters parameters) {
+        checkAnnotated(domain);
 
         if (domainUtils.isNodeClass(domain)) {
-            return nodeVisitor.visit(domain);
+            nodeVisitor.visit(domain, output, parameters);
+            return output;
         }
-        
-        if (domainUtils.isRelationshipClass(domain)) {
-            return relationVisitor.visit(domain);
+        relationVisitor.visit(domain, output, parameters);
+        return output;
+    }
+
+    private void checkAnnotated(Domain domain) {
+        if (!domainUtils.isNodeClass(domain) && !domainUtils.isRelationshipClass(domain)) {
+            throw new IllegalArgumentException(String.format(
+                "Domain class %s is neither a node nor a relationship abstraction",
+                domain.getClass().getSimpleName()
+            ));
         }
-        
-        throw new IllegalArgumentException(String.format(
-            "Domain class %s is neither a node nor a relationship abstraction",
-            domain.getClass().getSimpleName()
-        ));
     }
 
-    
+
 }
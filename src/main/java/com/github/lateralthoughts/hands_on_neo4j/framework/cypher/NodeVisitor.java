@@ -2,12 +2,9 @@ package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
 import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
-import com.google.common.base.Joiner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import static java.lang.String.format;
-
 @Component
 class NodeVisitor implements CypherVisitor {
 
@@ -24,15 +21,34 @@ class NodeVisitor implements CypherVisitor {
 
     @Override
     public String visit(Domain domain) {
-        return format("(n%s %s)",
-            visitLabels(domain),
-            propertyVisitor.visit(domain)
-        );
+        StringBuilder output = new StringBuilder();
+        visit(domain, output);
+        return output.toString();
+    }
+
+    @Override
+    public void visit(Domain domain, StringBuilder output) {
+        visit(domain, output, null);
+    }
+
+    @Override
+    public void visit(Domain domain, StringBuilder output, CypherParameters parameters) {
+        output.append("(n");
+        visitLabels(domain, output);
+        output.append(' ');
+        propertyVisitor.visit(domain, output, parameters);
+        output.append(')');
     }
 
-    private String visitLabels(Domain domain) {
-        return new StringBuilder(":")
-            .append(Joiner.on(":").join(labels.findAllNames(domain.getClass())))
-            .toString();
+    private void visitLabels(Domain domain, StringBuilder output) {
+        output.append(':');
+        boolean first = true;
+        for (String label : labels.findAllNames(domain.getClass())) {
+            if (!first) {
+                output.append(':');
+            }
+            first = false;
+            output.append(label);
+        }
     }
 }
@@ -1,19 +1,12 @@
 package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.FieldAccessor;
 import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.PropertyFinder;
 import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
-import com.google.common.base.Function;
-import com.google.common.base.Joiner;
-import com.google.common.collect.FluentIterable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
-
-import static com.google.common.base.Predicates.notNull;
-import static java.lang.String.format;
-
 @Component
 class PropertyVisitor implements CypherVisitor {
 
@@ -26,37 +19,50 @@ class PropertyVisitor implements CypherVisitor {
     
     @Override
     public String visit(Domain domain) {
-        String properties = Joiner.on(",").join(entriesToStrings(domain));
-        return new StringBuilder("{")
-            .append(properties)
-            .append("}")
-            .toString();
+        StringBuilder output = new StringBuilder();
+        visit(domain, output);
+        return output.toString();
     }
 
-    private Collection<String> entriesToStrings(Domain domain) {
-        return FluentIterable.from(properties.findAll(domain))
-            .transform(recursivelyAsStrings())
-            .filter(notNull())
-            .toList();
+    @Override
+    public void visit(Domain domain, StringBuilder output) {
+        visit(domain, output, null);
     }
 
-    private Function<Entry<String, Object>, String> recursivelyAsStrings() {
-        return new Function<Entry<String, Object>, String>() {
-            @Override
-            public String apply(Entry<String, Object> input) {
-                if (input == null) {
-                    return null;
-                }
-                return format("%s:'%s'", input.getKey(), transformValue(input));
+    /**
+     * Null properties are left out of inline renderings, Neo4J not storing them anyway.
+     * Parameterized renderings keep them, their text only depending on the domain class.
+     */
+    @Override
+    public void visit(Domain domain, StringBuilder output, CypherParameters parameters) {
+        output.append('{');
+        boolean first = true;
+        for (Entry<String, FieldAccessor> property : properties.findAllAccessors(domain)) {
+            Object value = property.getValue().get(domain);
+            if (value == null && parameters == null) {
+                continue;
             }
-
-            private String transformValue(Entry<String, Object> input) {
-                Object value = input.getValue();
-                if (!(value instanceof Domain)) {
-                    return value.toString();
-                }
-                return PropertyVisitor.this.visit((Domain) value);
+            if (!first) {
+                output.append(',');
+            }
+            first = false;
+            output.append(property.getKey()).append(':');
+            if (parameters == null) {
+                output.append('\'');
+                appendValue(value, output);
+                output.append('\'');
+            } else {
+                parameters.append(value instanceof Domain ? visit((Domain) value) : value, output);
             }
-        };
+        }
+        output.append('}');
+    }
+
+    private void appendValue(Object value, StringBuilder output) {
+        if (!(value instanceof Domain)) {
+            output.append(value);
+            return;
+        }
+        visit((Domain) value, output);
     }
 }
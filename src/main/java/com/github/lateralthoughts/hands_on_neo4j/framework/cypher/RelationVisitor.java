@@ -1,39 +1,53 @@
 package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
 
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.PropertyFinder;
 import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import static java.lang.String.format;
-
 @Component
 class RelationVisitor implements CypherVisitor {
 
     private final RelationTypeFinder relationTypes;
     private final NodeVisitor nodeVisitor;
+    private final PropertyFinder properties;
     private final PropertyVisitor propertyVisitor;
 
 
     @Autowired
     public RelationVisitor(RelationTypeFinder relationTypes,
                            NodeVisitor nodeVisitor,
+                           PropertyFinder properties,
                            PropertyVisitor propertyVisitor) {
 
         this.relationTypes = relationTypes;
         this.nodeVisitor = nodeVisitor;
+        this.properties = properties;
         this.propertyVisitor = propertyVisitor;
     }
 
     @Override
     public String visit(Domain domain) {
-        return format(
-            "%s-[:%s %s]%s%s",
-            nodeVisitor.visit(relationTypes.findStart(domain)),
-            relationTypes.findRelationshipName(domain),
-            propertyVisitor.visit(domain),
-            relationTypes.isDirected(domain) ? "->" : "-",
-            nodeVisitor.visit(relationTypes.findEnd(domain))
-        );
+        StringBuilder output = new StringBuilder();
+        visit(domain, output);
+        return output.toString();
+    }
+
+    @Override
+    public void visit(Domain domain, StringBuilder output) {
+        visit(domain, output, null);
+    }
+
+    @Override
+    public void visit(Domain domain, StringBuilder output, CypherParameters parameters) {
+        nodeVisitor.visit(relationTypes.findStart(domain), output, parameters);
+        output.append("-[:").append(relationTypes.findRelationshipName(domain));
+        if (!properties.findAllAccessors(domain).isEmpty()) {
+            output.append(' ');
+            propertyVisitor.visit(domain, output, parameters);
+        }
+        output.append(']').append(relationTypes.isDirected(domain) ? "->" : "-");
+        nodeVisitor.visit(relationTypes.findEnd(domain), output, parameters);
     }
 }
@@ -0,0 +1,81 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.google.common.collect.Iterables;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Creates the schema indexes upserts rendered by {@link DomainToCypher#cypherizeUpsert(Domain)} look nodes up with:
+ * one per node class, on its first label and its unique identifier property.
+ *
+ * Indexes of the domain node classes are created when the context starts, if missing.
+ */
+@Component
+public class UpsertIndexes {
+
+    public static final long ONLINE_TIMEOUT_SECONDS = 60;
+
+    private final GraphDatabaseService graphDB;
+    private final LabelFinder labels;
+    private final UpsertVisitor upsertVisitor;
+
+    @Autowired
+    UpsertIndexes(GraphDatabaseService graphDB, LabelFinder labels, UpsertVisitor upsertVisitor) {
+        this.graphDB = graphDB;
+        this.labels = labels;
+        this.upsertVisitor = upsertVisitor;
+    }
+
+    @PostConstruct
+    public void createDomainIndexes() {
+        create(Project.class, Commit.class);
+    }
+
+    /**
+     * Creates the missing indexes of the provided node classes, then waits for all of them to be online.
+     * Schema changes cannot be mixed with data changes: no transaction should be running.
+     *
+     * @throws IllegalStateException if indexes are still populating after {@link #ONLINE_TIMEOUT_SECONDS}
+     */
+    @SafeVarargs
+    public final void create(Class<? extends Domain>... nodeClasses) {
+        checkNotNull(nodeClasses);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            for (Class<? extends Domain> nodeClass : nodeClasses) {
+                Label label = labels.findAllLabels(nodeClass)[0];
+                String key = upsertVisitor.identityProperty(nodeClass).getKey();
+                if (!isIndexed(label, key)) {
+                    graphDB.schema().indexFor(label).on(key).create();
+                }
+            }
+            tx.success();
+        }
+        try (Transaction tx = graphDB.beginTx()) {
+            graphDB.schema().awaitIndexesOnline(ONLINE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            tx.success();
+        }
+    }
+
+    private boolean isIndexed(Label label, String key) {
+        for (IndexDefinition index : graphDB.schema().getIndexes(label)) {
+            if (Iterables.contains(index.getPropertyKeys(), key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.FieldAccessor;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.PropertyFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.UniqueIdentifierFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders idempotent statements: nodes are upserted on their {@link com.github.lateralthoughts.hands_on_neo4j.framework.annotations.UniqueIdentifier}
+ * property, relationships are uniquely created between endpoints looked up by their own unique identifier.
+ * Relationships declaring a unique identifier are re-pointed when their start node already has one with the
+ * same identifier, others are only unique by their endpoints, e.g. parent commits.
+ * Remaining properties are then SET.
+ *
+ * Nodes are looked up with MATCH rather than MERGE, which scans the whole label in Neo4J 2.0.0-M05,
+ * whatever the schema: MATCH ... WHERE lookups go through the indexes {@link UpsertIndexes} creates.
+ */
+@Component
+class UpsertVisitor {
+
+    private final DomainUtils domainUtils;
+    private final LabelFinder labels;
+    private final PropertyFinder properties;
+    private final UniqueIdentifierFinder uniqueIdentifiers;
+    private final RelationTypeFinder relationTypes;
+
+    @Autowired
+    public UpsertVisitor(DomainUtils domainUtils,
+                         LabelFinder labels,
+                         PropertyFinder properties,
+                         UniqueIdentifierFinder uniqueIdentifiers,
+                         RelationTypeFinder relationTypes) {
+
+        this.domainUtils = domainUtils;
+        this.labels = labels;
+        this.properties = properties;
+        this.uniqueIdentifiers = uniqueIdentifiers;
+        this.relationTypes = relationTypes;
+    }
+
+    public void visit(Domain domain, StringBuilder output, CypherParameters parameters) {
+        if (domainUtils.isNodeClass(domain)) {
+            visitNode(domain, output, parameters);
+            return;
+        }
+        visitRelationship(domain, output, parameters);
+    }
+
+    private void visitNode(Domain domain, StringBuilder output, CypherParameters parameters) {
+        Entry<String, FieldAccessor> identity = identityProperty(domain);
+        String key = parameters.register(identity.getValue().get(domain));
+        StringBuilder remaining = new StringBuilder();
+        appendRemainingProperties("n", domain, identity.getValue(), remaining, parameters);
+
+        output.append("MATCH (n");
+        appendLabels(domain, output);
+        output.append(") WHERE n.").append(identity.getKey()).append(" = ").append(key)
+            .append(" WITH collect(n) AS existing");
+        if (remaining.length() > 0) {
+            output.append(" FOREACH (n IN existing |").append(remaining).append(')');
+        }
+        output.append(" FOREACH (x IN CASE WHEN length(existing) = 0 THEN [1] ELSE [] END | CREATE (n");
+        appendLabels(domain, output);
+        output.append(" {").append(identity.getKey()).append(':').append(key).append("})")
+            .append(remaining).append(')');
+    }
+
+    private void visitRelationship(Domain domain, StringBuilder output, CypherParameters parameters) {
+        Domain start = relationTypes.findStart(domain);
+        Domain end = relationTypes.findEnd(domain);
+        Entry<String, FieldAccessor> startIdentity = identityProperty(start);
+        Entry<String, FieldAccessor> endIdentity = identityProperty(end);
+
+        output.append("MATCH (s");
+        appendLabels(start, output);
+        output.append("), (e");
+        appendLabels(end, output);
+        output.append(") WHERE s.").append(startIdentity.getKey()).append(" = ");
+        parameters.append(startIdentity.getValue().get(start), output);
+        output.append(" AND e.").append(endIdentity.getKey()).append(" = ");
+        parameters.append(endIdentity.getValue().get(end), output);
+
+        String relationshipName = relationTypes.findRelationshipName(domain);
+        String direction = relationTypes.isDirected(domain) ? "->" : "-";
+        if (!uniqueIdentifiers.isIdentified(domain.getClass())) {
+            output.append(" CREATE UNIQUE (s)-[r:").append(relationshipName).append(']').append(direction).append("(e)");
+            appendRemainingProperties("r", domain, null, output, parameters);
+            return;
+        }
+
+        Entry<String, FieldAccessor> identity = identityProperty(domain);
+        String key = parameters.register(identity.getValue().get(domain));
+        output.append(" WITH s, e MATCH (s)-[old?:").append(relationshipName).append(']').append(direction)
+            .append("() WITH s, e, collect(old) AS previous")
+            .append(" FOREACH (old IN filter(old IN previous WHERE old.").append(identity.getKey()).append(" = ").append(key)
+            .append(relationTypes.isDirected(domain) ? " AND endNode(old) <> e" : " AND startNode(old) <> e AND endNode(old) <> e")
+            .append(") | DELETE old)");
+
+        output.append(" CREATE UNIQUE (s)-[r:").append(relationshipName)
+            .append(" {").append(identity.getKey()).append(':').append(key)
+            .append("}]").append(direction).append("(e)");
+        appendRemainingProperties("r", domain, identity.getValue(), output, parameters);
+    }
+
+    /**
+     * Returns the property key of the unique identifier field, falling back to the
+     * unique identifier key when the field is not a plain property.
+     */
+    private Entry<String, FieldAccessor> identityProperty(Domain domain) {
+        return identityProperty(domain.getClass());
+    }
+
+    Entry<String, FieldAccessor> identityProperty(Class<? extends Domain> domainClass) {
+        Entry<String, FieldAccessor> identity = uniqueIdentifiers.findSingleAccessor(domainClass);
+        for (Entry<String, FieldAccessor> property : properties.findAllAccessors(domainClass)) {
+            if (property.getValue() == identity.getValue()) {
+                return property;
+            }
+        }
+        return identity;
+    }
+
+    private void appendLabels(Domain domain, StringBuilder output) {
+        for (String label : labels.findAllNames(domain.getClass())) {
+            output.append(':').append(label);
+        }
+    }
+
+    private void appendRemainingProperties(String identifier,
+                                           Domain domain,
+                                           FieldAccessor identity,
+                                           StringBuilder output,
+                                           CypherParameters parameters) {
+        boolean first = true;
+        for (Entry<String, FieldAccessor> property : properties.findAllAccessors(domain)) {
+            if (property.getValue() == identity) {
+                continue;
+            }
+            output.append(first ? " SET " : ", ");
+            first = false;
+            output.append(identifier).append('.').append(property.getKey()).append(" = ");
+            parameters.append(property.getValue().get(domain), output);
+        }
+    }
+}
@@ -1,10 +1,97 @@
 package com.github.lateralthoughts.hands_on_neo4j.framework.utilities;
 
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+
 public class CommitUtils {
 
+    /**
+     * Node property holding the binary content hash of content-addressed commits.
+     */
+    public static final String CONTENT_HASH = "contentHash";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * How generated commit identifiers are computed.
+     */
+    public enum IdentifierMode {
+        /**
+         * Random UUIDs: identical contents get distinct identifiers.
+         */
+        RANDOM(null),
+        /**
+         * Hex views of the SHA-1 of parent identifiers and message.
+         */
+        SHA_1("SHA-1"),
+        /**
+         * Hex views of the SHA-256 of parent identifiers and message.
+         */
+        SHA_256("SHA-256");
+
+        private final String algorithm;
+
+        IdentifierMode(String algorithm) {
+            this.algorithm = algorithm;
+        }
+    }
+
+    private final IdentifierMode mode;
+    private final ThreadLocal<MessageDigest> digests;
+
+    public CommitUtils() {
+        this(IdentifierMode.RANDOM);
+    }
+
+    public CommitUtils(final IdentifierMode mode) {
+        this.mode = checkNotNull(mode);
+        this.digests = new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance(mode.algorithm);
+                } catch (NoSuchAlgorithmException e) {
+                    throw propagate(e);
+                }
+            }
+        };
+    }
+
+    public IdentifierMode getMode() {
+        return mode;
+    }
+
+    public boolean isContentAddressed() {
+        return mode != IdentifierMode.RANDOM;
+    }
+
     public String uniqueIdentifier() {
         return UUID.randomUUID().toString();
     }
+
+    /**
+     * Hashes parent identifiers, in order, then the message, with the digest of the current thread.
+     */
+    public byte[] contentHash(Iterable<String> parentIdentifiers, String message) {
+        checkState(isContentAddressed(), "Commit identifiers are random");
+        checkNotNull(parentIdentifiers);
+
+        MessageDigest digest = digests.get();
+        for (String parentIdentifier : parentIdentifiers) {
+            digest.update("parent ".getBytes(UTF_8));
+            digest.update(checkNotNull(parentIdentifier).getBytes(UTF_8));
+            digest.update((byte) '\n');
+        }
+        digest.update((byte) '\n');
+        if (message != null) {
+            digest.update(message.getBytes(UTF_8));
+        }
+        return digest.digest();
+    }
 }
@@ -0,0 +1,42 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.utilities;
+
+import com.google.common.io.BaseEncoding;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Packs hex commit identifiers, such as SHA-1 hashes, two characters per byte.
+ * Only lowercase identifiers of even length are packed, so that unpacking gives them back as is.
+ */
+public final class IdentifierCodec {
+
+    private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
+    private IdentifierCodec() {
+    }
+
+    public static boolean isPackable(String identifier) {
+        checkNotNull(identifier);
+        if (identifier.isEmpty() || identifier.length() % 2 != 0) {
+            return false;
+        }
+        for (int i = 0; i < identifier.length(); i++) {
+            char next = identifier.charAt(i);
+            if ((next < '0' || next > '9') && (next < 'a' || next > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] pack(String identifier) {
+        checkArgument(isPackable(identifier), "%s is not a lowercase hex identifier", identifier);
+        return HEX.decode(identifier);
+    }
+
+    public static String unpack(byte[] packed) {
+        checkNotNull(packed);
+        return HEX.encode(packed);
+    }
+}
@@ -2,10 +2,18 @@ package com.github.lateralthoughts.hands_on_neo4j.framework.utilities;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.CommitUtils.IdentifierMode;
 
 @Configuration
 public class UtilsModule {
 
+    /**
+     * Property naming the {@link IdentifierMode} of generated commit identifiers, {@link IdentifierMode#RANDOM} if unset.
+     */
+    public static final String IDENTIFIER_MODE = "birggit.identifier.mode";
+
     @Bean
     //@Singleton
     public DomainUtils provideDomainUtils() {
@@ -20,7 +28,7 @@ public class UtilsModule {
 
     @Bean
     //@Singleton
-    public CommitUtils provideCommitUtils() {
-        return new CommitUtils();
+    public CommitUtils provideCommitUtils(Environment environment) {
+        return new CommitUtils(environment.getProperty(IDENTIFIER_MODE, IdentifierMode.class, IdentifierMode.RANDOM));
     }
 }
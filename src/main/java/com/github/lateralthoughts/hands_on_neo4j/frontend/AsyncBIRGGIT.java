@@ -0,0 +1,162 @@
+package com.github.lateralthoughts.hands_on_neo4j.frontend;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.gc.GcReport;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+
+/**
+ * Asynchronous facade of {@link BIRGGIT}.
+ *
+ * Mutations run one at a time on a single writer thread, reads run on a fixed pool of reader threads.
+ * Both have a bounded queue: once it is full, new operations are rejected with a
+ * {@link RejectedExecutionException} instead of piling up.
+ * Returned nodes and relationships still have to be read within a transaction.
+ */
+@Component
+public class AsyncBIRGGIT {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private final BIRGGIT birggit;
+    private final ListeningExecutorService writer;
+    private final ListeningExecutorService readers;
+
+    @Autowired
+    public AsyncBIRGGIT(BIRGGIT birggit) {
+        this(birggit, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public AsyncBIRGGIT(BIRGGIT birggit, int readerThreads, int queueCapacity) {
+        checkArgument(readerThreads > 0, "Number of reader threads should be strictly positive");
+        checkArgument(queueCapacity > 0, "Queue capacity should be strictly positive");
+
+        this.birggit = birggit;
+        this.writer = boundedPool("birggit-writer-%d", 1, queueCapacity);
+        this.readers = boundedPool("birggit-reader-%d", readerThreads, queueCapacity);
+    }
+
+    /**
+     * @see {@link BIRGGIT#commit(Commit, Branch)}
+     */
+    public ListenableFuture<Relationship> commit(final Commit commit, final Branch branch) {
+        return writer.submit(new Callable<Relationship>() {
+            @Override
+            public Relationship call() {
+                return birggit.commit(commit, branch);
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#merge(Branch, Branch)}
+     */
+    public ListenableFuture<Relationship> merge(final Branch firstBranch, final Branch secondBranch) {
+        return writer.submit(new Callable<Relationship>() {
+            @Override
+            public Relationship call() {
+                return birggit.merge(firstBranch, secondBranch);
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#gc()}
+     */
+    public ListenableFuture<GcReport> gc() {
+        return writer.submit(new Callable<GcReport>() {
+            @Override
+            public GcReport call() {
+                return birggit.gc();
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#log(String)}
+     */
+    public ListenableFuture<Collection<Node>> log(final String branchName) {
+        return readers.submit(new Callable<Collection<Node>>() {
+            @Override
+            public Collection<Node> call() {
+                return birggit.log(branchName);
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#log(String, int)}
+     */
+    public ListenableFuture<Collection<Node>> log(final String branchName, final int limit) {
+        return readers.submit(new Callable<Collection<Node>>() {
+            @Override
+            public Collection<Node> call() {
+                return birggit.log(branchName, limit);
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#log(String, String)}
+     */
+    public ListenableFuture<Collection<Node>> log(final String firstBranch, final String secondBranch) {
+        return readers.submit(new Callable<Collection<Node>>() {
+            @Override
+            public Collection<Node> call() {
+                return birggit.log(firstBranch, secondBranch);
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#findCommonAncestor(String, String)}
+     */
+    public ListenableFuture<Node> findCommonAncestor(final String firstBranch, final String secondBranch) {
+        return readers.submit(new Callable<Node>() {
+            @Override
+            public Node call() {
+                return birggit.findCommonAncestor(firstBranch, secondBranch);
+            }
+        });
+    }
+
+    /**
+     * Stops accepting operations, waiting for the queued ones to complete.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        readers.shutdown();
+        writer.awaitTermination(1, TimeUnit.MINUTES);
+        readers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private static ListeningExecutorService boundedPool(String nameFormat, int threads, int queueCapacity) {
+        return listeningDecorator(new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(queueCapacity),
+            new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy()
+        ));
+    }
+}
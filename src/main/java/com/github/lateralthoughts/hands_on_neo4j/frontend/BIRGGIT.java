@@ -1,28 +1,51 @@
 package com.github.lateralthoughts.hands_on_neo4j.frontend;
 
+import com.github.lateralthoughts.hands_on_neo4j.branches.BranchTips;
+import com.github.lateralthoughts.hands_on_neo4j.commitgraph.CommitGraphIndex;
 import com.github.lateralthoughts.hands_on_neo4j.domain.*;
 import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.*;
 import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
 import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.CommitUtils;
+import com.github.lateralthoughts.hands_on_neo4j.gc.GarbageCollector;
+import com.github.lateralthoughts.hands_on_neo4j.gc.GcReport;
+import com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations;
+import com.github.lateralthoughts.hands_on_neo4j.history.CommitPage;
+import com.github.lateralthoughts.hands_on_neo4j.history.CommitStream;
+import com.github.lateralthoughts.hands_on_neo4j.history.LogOrder;
+import com.github.lateralthoughts.hands_on_neo4j.history.LogPaginator;
+import com.github.lateralthoughts.hands_on_neo4j.history.LogStreamer;
+import com.github.lateralthoughts.hands_on_neo4j.history.MergeBaseFinder;
+import com.github.lateralthoughts.hands_on_neo4j.history.RangeWalker;
+import com.github.lateralthoughts.hands_on_neo4j.identifiers.CommitPrefixIndex;
+import com.github.lateralthoughts.hands_on_neo4j.identifiers.PrefixMatch;
 import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import org.neo4j.cypher.ExecutionEngine;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.index.IndexHits;
 import org.neo4j.graphdb.index.UniqueFactory;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.core.TransactionState;
+import org.neo4j.kernel.impl.transaction.AbstractTransactionManager;
 import org.neo4j.kernel.logging.BufferingLogger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.transaction.TransactionManager;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.CommitUtils.CONTENT_HASH;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.IdentifierCodec.pack;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.IdentifierCodec.unpack;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
 import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.Direction.OUTGOING;
 import static org.neo4j.graphdb.traversal.Evaluators.toDepth;
 import static org.neo4j.helpers.collection.IteratorUtil.asIterable;
 import static org.neo4j.kernel.Traversal.description;
@@ -45,7 +68,16 @@ public final class BIRGGIT {
     private final RelationTypeFinder relationshipTypes;
     private final UniqueIdentifierFinder uniqueIdentifiers;
     private final IndexFinder indices;
+    private final MergeBaseFinder mergeBases;
+    private final CommitGenerations generations;
+    private final LogPaginator logPaginator;
+    private final LogStreamer logStreamer;
+    private final RangeWalker rangeWalker;
+    private final GarbageCollector garbageCollector;
+    private final BranchTips branchTips;
     private final CommitUtils commitUtils;
+    private final CommitPrefixIndex prefixIndex;
+    private final CommitGraphIndex commitGraph;
     private ExecutionEngine engine;
 
     @Autowired
@@ -55,7 +87,16 @@ public final class BIRGGIT {
                    RelationTypeFinder relationshipTypes,
                    UniqueIdentifierFinder uniqueIdentifiers,
                    IndexFinder indices,
-                   CommitUtils commitUtils) {
+                   MergeBaseFinder mergeBases,
+                   CommitGenerations generations,
+                   LogPaginator logPaginator,
+                   LogStreamer logStreamer,
+                   RangeWalker rangeWalker,
+                   GarbageCollector garbageCollector,
+                   BranchTips branchTips,
+                   CommitUtils commitUtils,
+                   CommitPrefixIndex prefixIndex,
+                   CommitGraphIndex commitGraph) {
 
         this.graphDB = graphDB;
         this.labels = labels;
@@ -63,7 +104,16 @@ public final class BIRGGIT {
         this.relationshipTypes = relationshipTypes;
         this.uniqueIdentifiers = uniqueIdentifiers;
         this.indices = indices;
+        this.mergeBases = mergeBases;
+        this.generations = generations;
+        this.logPaginator = logPaginator;
+        this.logStreamer = logStreamer;
+        this.rangeWalker = rangeWalker;
+        this.garbageCollector = garbageCollector;
+        this.branchTips = branchTips;
         this.commitUtils = commitUtils;
+        this.prefixIndex = prefixIndex;
+        this.commitGraph = commitGraph;
         engine = new ExecutionEngine(graphDB, new BufferingLogger());
     }
 
@@ -122,12 +172,26 @@ public final class BIRGGIT {
                 relationshipTypes.findRelationshipType(newBranch)
             );
             populateProperties(relationship, newBranch);
+            branchTips.onBranchWritten();
 
             tx.success();
             return relationship;
         }
     }
 
+    /**
+     * Creates a new {@link ParentCommit} relationship, along with its missing commit nodes.
+     */
+    public Relationship createParentCommit(ParentCommit parentCommit) {
+        checkNotNull(parentCommit);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            Relationship relationship = createUniqueParentCommit(parentCommit);
+            tx.success();
+            return relationship;
+        }
+    }
+
     /**
      * Add a {@link Branch} relationship to the index.
      */
@@ -136,7 +200,8 @@ public final class BIRGGIT {
 
         String indexName = indices.findName(Branch.class);
         try (Transaction tx = graphDB.beginTx()) {
-            Relationship relationship = findBranch(branch.getProperty("name").toString());
+            branchTips.onBranchWritten();
+            Relationship relationship = findIndexedBranch(branch.getProperty("name").toString());
             if (relationship != null) {
                 graphDB.index()
                         .forRelationships(indexName)
@@ -156,20 +221,19 @@ public final class BIRGGIT {
     }
 
     /**
-     * Find an indexed branch by its name
+     * Find an indexed branch by its name, looking up the in-memory {@link BranchTips} table first
      */
     public Relationship findBranch(String branchName) {
         checkArgument(branchName != null && !branchName.isEmpty());
 
-        String indexName = indices.findName(Branch.class);
-        String indexedKey = uniqueIdentifiers.findSingleKey(Branch.class);
-
-        try (Transaction tx = graphDB.beginTx();
-             IndexHits<Relationship> indexResults = graphDB.index()
-                 .forRelationships(indexName)
-                 .get(indexedKey, branchName)) {
-
-            Relationship result = indexResults.getSingle();
+        try (Transaction tx = graphDB.beginTx()) {
+            Relationship result = branchTips.find(branchName);
+            if (result == null) {
+                result = findIndexedBranch(branchName);
+                if (result != null) {
+                    branchTips.remember(result);
+                }
+            }
             tx.success();
             return result;
         }
@@ -179,21 +243,31 @@ public final class BIRGGIT {
      * Creates a new {@link Commit} node and updates the provided
      * {@link Branch} relationship accordingly.
      *
+     * The branch is write-locked until the end of the enclosing transaction, so that concurrent
+     * commits on the same branch are applied one after the other: the new commit is appended
+     * to the current tip of the branch, which may be more recent than the provided one.
+     * Commits on other branches are not blocked until the branch relationship is replaced,
+     * which write-locks the project node, hence this is done last.
+     *
      * @return the updated {@link Branch} relationship
      */
     public Relationship commit(Commit commit, Branch currentBranch) {
         checkNotNull(commit);
 
         try (Transaction tx = graphDB.beginTx()) {
-            Relationship branch = findBranch(currentBranch.getName());
-            branch.delete();
-            createUniqueRelationship(
+            Relationship branch = lockBranch(currentBranch);
+            Node tip = branch.getEndNode();
+            createUniqueParentCommit(
                 new ParentCommit(
-                    currentBranch.getCommit(),
+                    new Commit(tip.getProperty("identifier").toString(), (String) tip.getProperty("message", null)),
                     commit
                 )
             );
+            tx.acquireWriteLock(branch.getStartNode());
+            branchTips.onBranchWritten();
+            branch.delete();
             Relationship result = createBranch(new Branch(currentBranch, commit));
+            indexBranch(result);
 
             tx.success();
             return result;
@@ -203,6 +277,8 @@ public final class BIRGGIT {
 
     /**
      * Merges the second provided branch to the first one.
+     * When commit identifiers are content-addressed, merging the same parents with the same message
+     * again yields the already existing merge commit, found by a single index lookup.
      *
      * @return the updated {@link Branch} relationship
      */
@@ -211,14 +287,18 @@ public final class BIRGGIT {
         checkNotNull(secondBranch);
 
         try (Transaction tx = graphDB.beginTx()) {
-            Commit mergeCommit = newMergeCommit(secondBranch);
+            lockBranches(firstBranch, secondBranch);
+            Commit mergeCommit = newMergeCommit(firstBranch, secondBranch);
             Relationship updatedFirstBranch = commit(mergeCommit, firstBranch);
-            createUniqueRelationship(
+            createUniqueParentCommit(
                     new ParentCommit(
                             secondBranch.getCommit(),
                             mergeCommit
                     )
             );
+            if (commitUtils.isContentAddressed()) {
+                updatedFirstBranch.getEndNode().setProperty(CONTENT_HASH, pack(mergeCommit.getIdentifier()));
+            }
 
             tx.success();
             return updatedFirstBranch;
@@ -252,11 +332,11 @@ public final class BIRGGIT {
     }
 
     /**
-     * Logs all commits of specified branch up to the provided limit
+     * Logs all commits of specified branch up to the provided limit, depth first.
+     * Unlike paginated and streamed logs, it does not rely on generations, hence works on stores never backfilled.
      */
     public Collection<Node> log(String branchName, int limit) {
         checkArgument(limit > 0, "Limit of commits to log should be strictly positive");
-
         ImmutableList.Builder<Node> logs = ImmutableList.builder();
 
         try (Transaction tx = graphDB.beginTx()) {
@@ -275,81 +355,190 @@ public final class BIRGGIT {
         return logs.build();
     }
 
+    /**
+     * Lazily logs all commits of specified branch, highest generation first.
+     * The stream holds a transaction until it is exhausted or closed, and has to be consumed by the calling thread.
+     */
+    public CommitStream streamLog(String branchName) {
+        Transaction tx = graphDB.beginTx();
+        try {
+            return logStreamer.stream(tx, findBranch(branchName).getEndNode());
+        } catch (RuntimeException e) {
+            tx.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lazily logs the same commits as {@link #log(String, String)}, in the same order.
+     *
+     * @see {@link this#streamLog(String)}
+     */
+    public CommitStream streamLog(String firstBranch, String secondBranch) {
+        Transaction tx = graphDB.beginTx();
+        try {
+            return logStreamer.streamRange(
+                tx,
+                findBranch(firstBranch).getEndNode(),
+                findBranch(secondBranch).getEndNode()
+            );
+        } catch (RuntimeException e) {
+            tx.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Logs the first commits of specified branch, highest generation first.
+     *
+     * @return the page of commits, along with the cursor of the next one
+     */
+    public CommitPage logPage(String branchName, int limit) {
+        try (Transaction tx = graphDB.beginTx()) {
+            CommitPage page = logPaginator.firstPage(findBranch(branchName).getEndNode(), limit);
+            tx.success();
+            return page;
+        }
+    }
+
+    /**
+     * Logs the commits following the page the provided cursor has been returned with.
+     */
+    public CommitPage nextLogPage(String cursor, int limit) {
+        try (Transaction tx = graphDB.beginTx()) {
+            CommitPage page = logPaginator.nextPage(cursor, limit);
+            tx.success();
+            return page;
+        }
+    }
+
     /**
      * Finds the latest commits both in first and second branch.
      */
     public Node findCommonAncestor(String firstBranch, String secondBranch) {
+        boolean mirrored = commitGraph.servesCurrentThread();
         try (Transaction tx = graphDB.beginTx()) {
-            RelationshipType relationshipType = relationshipTypes.findRelationshipType(ParentCommit.class);
+            Node first = findBranch(firstBranch).getEndNode();
+            Node second = findBranch(secondBranch).getEndNode();
+            Node ancestor;
+            if (mirrored && commitGraph.contains(first.getId()) && commitGraph.contains(second.getId())) {
+                long ancestorId = commitGraph.findMergeBase(first.getId(), second.getId());
+                ancestor = ancestorId == CommitGraphIndex.NO_COMMIT ? null : graphDB.getNodeById(ancestorId);
+            } else {
+                ancestor = mergeBases.findMergeBase(first, second);
+            }
+            tx.success();
+            return ancestor;
+        }
+    }
 
-            Node firstBranchStart = findBranch(firstBranch).getEndNode();
-            Node secondBranchStart = findBranch(secondBranch).getEndNode();
+    /**
+     * Logs all commits of second branch until join points with first branch are met, join points included.
+     *
+     * @see {@link RangeWalker}
+     */
+    public Collection<Node> log(String firstBranch, String secondBranch) {
+        try (Transaction tx = graphDB.beginTx()) {
+            Collection<Node> logs = rangeWalker.walk(
+                findBranch(firstBranch).getEndNode(),
+                findBranch(secondBranch).getEndNode(),
+                LogOrder.TOPOLOGICAL,
+                RangeWalker.NO_LIMIT,
+                true
+            );
+            tx.success();
+            return logs;
+        }
+    }
 
-            for (Path firstBranchPosition : description()
-                .depthFirst()
-                .relationships(relationshipType, INCOMING)
-                .traverse(firstBranchStart)) {
+    /**
+     * @see {@link this#logRange(String, String, LogOrder, int)}
+     */
+    public Collection<Node> logRange(String firstBranch, String secondBranch, LogOrder order) {
+        return logRange(firstBranch, secondBranch, order, RangeWalker.NO_LIMIT);
+    }
 
-                for (Path secondBranchPosition : description()
-                    .depthFirst()
-                    .relationships(relationshipType, INCOMING)
-                    .traverse(secondBranchStart)) {
+    /**
+     * Logs commits of second branch that are not reachable from first branch, like <code>git log first..second</code>.
+     */
+    public Collection<Node> logRange(String firstBranch, String secondBranch, LogOrder order, int limit) {
+        boolean mirrored = commitGraph.servesCurrentThread();
+        try (Transaction tx = graphDB.beginTx()) {
+            Node excluded = findBranch(firstBranch).getEndNode();
+            Node included = findBranch(secondBranch).getEndNode();
+            ImmutableList<Node> logs = null;
+            if (mirrored && order == LogOrder.TOPOLOGICAL
+                && commitGraph.contains(excluded.getId()) && commitGraph.contains(included.getId())) {
 
-                    if (secondBranchPosition.endNode().getId() == firstBranchPosition.endNode().getId()) {
-                        tx.success();
-                        return secondBranchPosition.endNode();
-                    }
-                }
+                logs = mirroredCommits(commitGraph.range(excluded.getId(), included.getId(), limit));
+            }
+            if (logs == null) {
+                logs = rangeWalker.walk(excluded, included, order, limit);
             }
             tx.success();
+            return logs;
         }
-        return null;
     }
 
     /**
-     * Logs all commits of second branch until a join point with first branch is met.
+     * Tells whether the provided commit is reachable from the branch tip, like <code>git branch --contains</code>.
      */
-    public Collection<Node> log(String firstBranch, String secondBranch) {
-        Node ancestor = findCommonAncestor(firstBranch, secondBranch);
-        if (ancestor == null) {
-            return ImmutableList.of();
+    public boolean contains(String branchName, String commitIdentifier) {
+        boolean mirrored = commitGraph.servesCurrentThread();
+        try (Transaction tx = graphDB.beginTx()) {
+            Node commit = findOneCommit(commitIdentifier);
+            Node tip = findBranch(branchName).getEndNode();
+            boolean result;
+            if (commit == null) {
+                result = false;
+            } else if (mirrored && commitGraph.contains(commit.getId()) && commitGraph.contains(tip.getId())) {
+                result = commitGraph.isAncestor(commit.getId(), tip.getId());
+            } else {
+                result = mergeBases.isAncestor(commit, tip);
+            }
+            tx.success();
+            return result;
         }
+    }
 
-        ImmutableList.Builder<Node> logs = ImmutableList.builder();
+    /**
+     * Finds 1 commit against its provided identifier, in the commit index first.
+     * Commits missing from it, like amended ones, are then looked up by label and identifier.
+     */
+    public Node findOneCommit(String uniqueIdentifier) {
         try (Transaction tx = graphDB.beginTx()) {
-            for (Path position : description()
-                .depthFirst()
-                .evaluator(toDepth(DEFAULT_COMMIT_PAGE_SIZE - 1))
-                .relationships(relationshipTypes.findRelationshipType(ParentCommit.class), INCOMING)
-                .traverse(findBranch(secondBranch).getEndNode())) {
-
-                Node currentNode = position.endNode();
-                logs.add(currentNode);
+            Node result = findIndexedCommit(uniqueIdentifier);
+            if (result == null) {
+                try (ResourceIterator<Node> commits = graphDB.findNodesByLabelAndProperty(
+                         labels.findAllLabels(Commit.class)[0], "identifier", uniqueIdentifier).iterator()) {
 
-                if (currentNode.equals(ancestor)) {
-                    break;
+                    result = commits.hasNext() ? commits.next() : null;
                 }
             }
             tx.success();
+            return result;
         }
-        return logs.build();
     }
 
     /**
-     * Finds 1 commit against its provided identifier
+     * Finds a commit by an abbreviated identifier, like <code>git show 3f2a</code>.
+     * Only committed commits are found.
+     *
+     * @return the matching commit, null if none matches
+     * @throws IllegalArgumentException if several commits match
      */
-    public Node findOneCommit(String uniqueIdentifier) {
-        Collection<Node> commits;
-        try (Transaction tx = graphDB.beginTx();
-             ResourceIterator<Node> result = engine.execute(
-                 format("MATCH (commit:COMMIT) WHERE commit.identifier = '%s' RETURN commit", uniqueIdentifier)
-             ).javaColumnAs("commit")) {
+    public Node findByPrefix(String prefix) {
+        PrefixMatch match = prefixIndex.find(prefix);
+        checkArgument(!match.isAmbiguous(), "Commit prefix %s is ambiguous: %s", prefix, Joiner.on(", ").join(match.getCandidates()));
+        if (!match.isFound()) {
+            return null;
+        }
 
-            commits = newArrayList(asIterable(result));
+        try (Transaction tx = graphDB.beginTx()) {
+            Node result = graphDB.getNodeById(match.getNodeId());
             tx.success();
+            return result;
         }
-        Iterator<Node> iterator = commits.iterator();
-        return iterator.hasNext() ? iterator.next() : null;
     }
 
     /**
@@ -383,12 +572,12 @@ public final class BIRGGIT {
     }
 
     /**
-     * Finds commits that are not connected to anything
+     * Finds commits that are not connected to anything, scanning the whole store
      */
     public Collection<Node> findOrphanCommits() {
         try (Transaction tx = graphDB.beginTx();
              ResourceIterator<Node> orphans = engine.execute(
-                 "START orphan=node(*) MATCH (orphan:COMMIT)-[r?]->() WHERE r IS NULL RETURN orphan AS n"
+                 "START orphan=node(*) MATCH (orphan:COMMIT)-[r?]-() WHERE r IS NULL RETURN orphan AS n"
              ).javaColumnAs("n")) {
 
             Collection<Node> result = newArrayList(asIterable(orphans));
@@ -398,27 +587,40 @@ public final class BIRGGIT {
     }
 
     /**
-     * Deletes orphan commits
+     * Deletes orphan commits, chunk by chunk.
+     *
+     * @see {@link GarbageCollector}
      */
-    public void gc() {
-        try (Transaction tx = graphDB.beginTx()) {
-            Collection<Node> orphans = findOrphanCommits();
-            String[] identifiers = new String[orphans.size()];
-            int i = 0;
-            for (Node orphan : orphans) {
-                identifiers[i++] = orphan.getProperty("identifier").toString();
+    public GcReport gc() {
+        return garbageCollector.collect();
+    }
+
+    /**
+     * @return the commits of the provided mirrored ids, null if some of them have been deleted since
+     */
+    private ImmutableList<Node> mirroredCommits(long[] ids) {
+        ImmutableList.Builder<Node> result = ImmutableList.builder();
+        try {
+            for (long id : ids) {
+                result.add(graphDB.getNodeById(id));
             }
-            deleteAll(identifiers);
-            tx.success();
+        } catch (NotFoundException e) {
+            return null;
         }
+        return result.build();
     }
 
-
-    private Commit newMergeCommit(Branch mergedBranch) {
-        return new Commit(
-            commitUtils.uniqueIdentifier(),
-            format("Merged %s", mergedBranch.getName())
+    private Commit newMergeCommit(Branch firstBranch, Branch mergedBranch) {
+        String message = format("Merged %s", mergedBranch.getName());
+        if (!commitUtils.isContentAddressed()) {
+            return new Commit(commitUtils.uniqueIdentifier(), message);
+        }
+        Node tip = lockBranch(firstBranch).getEndNode();
+        ImmutableList<String> parents = ImmutableList.of(
+            tip.getProperty("identifier").toString(),
+            mergedBranch.getCommit().getIdentifier()
         );
+        return new Commit(unpack(commitUtils.contentHash(parents, message)), message);
     }
 
     private Node createUniqueNode(final Domain entity) {
@@ -431,6 +633,9 @@ public final class BIRGGIT {
                 newlyCreatedNode.setProperty(key, value);
                 populateLabels(newlyCreatedNode, entity);
                 populateProperties(newlyCreatedNode, entity);
+                if (entity instanceof Commit) {
+                    generations.initialize(newlyCreatedNode);
+                }
             }
         };
         return uniqueNodeFactory.getOrCreate(key, value);
@@ -452,6 +657,92 @@ public final class BIRGGIT {
         return propertyContainer;
     }
 
+    /**
+     * Write-locks the provided branch, then reads its current relationship.
+     *
+     * Committing on a branch replaces its relationship, which therefore cannot be locked itself.
+     * A lock keyed by project and branch name is taken from the transaction lock manager instead:
+     * it is released at the end of the transaction and takes part in deadlock detection.
+     * Only writers of the same branch wait for each other. The project node still gets write-locked
+     * once the branch relationship is replaced, hence this is done last.
+     */
+    private Relationship lockBranch(Branch branch) {
+        lockBranches(branch);
+        Relationship result = findCurrentBranch(branch);
+        checkArgument(result != null, "Branch %s does not exist in project %s", branch.getName(), branch.getProject().getName());
+        return result;
+    }
+
+    /**
+     * Write-locks the provided branches by project then branch name,
+     * so that merges of two branches into each other do not deadlock.
+     */
+    private void lockBranches(Branch... branches) {
+        BranchLock[] locks = new BranchLock[branches.length];
+        for (int i = 0; i < branches.length; i++) {
+            locks[i] = new BranchLock(branches[i].getProject().getName(), branches[i].getName());
+        }
+        Arrays.sort(locks);
+        TransactionState transactionState = ((AbstractTransactionManager) ((GraphDatabaseAPI) graphDB).getDependencyResolver()
+            .resolveDependency(TransactionManager.class))
+            .getTransactionState();
+        for (BranchLock lock : locks) {
+            transactionState.acquireWriteLock(lock);
+        }
+    }
+
+    /**
+     * Looks the branch up in the index first, as only writers of the branch replace its entry,
+     * then among the relationships of its project.
+     */
+    private Relationship findCurrentBranch(Branch branch) {
+        Node project = createUniqueNode(branch.getProject());
+        Relationship indexed = findBranch(branch.getName());
+        if (indexed != null && indexed.getStartNode().equals(project)) {
+            return indexed;
+        }
+        Relationship result = null;
+        for (Relationship candidate : project.getRelationships(relationshipTypes.findRelationshipType(Branch.class), OUTGOING)) {
+            if (!branch.getName().equals(candidate.getProperty("name", null))) {
+                continue;
+            }
+            if (result == null || candidate.getId() > result.getId()) {
+                result = candidate;
+            }
+        }
+        return result;
+    }
+
+    private Node findIndexedCommit(String identifier) {
+        try (IndexHits<Node> indexResults = graphDB.index()
+                 .forNodes(indices.findName(Commit.class))
+                 .get(uniqueIdentifiers.findSingleKey(Commit.class), identifier)) {
+
+            for (Node candidate : indexResults) {
+                try {
+                    if (identifier.equals(candidate.getProperty("identifier", null))) {
+                        return candidate;
+                    }
+                } catch (NotFoundException | IllegalStateException e) {
+                    // deleted since it was indexed
+                }
+            }
+            return null;
+        }
+    }
+
+    private Relationship findIndexedBranch(String branchName) {
+        String indexName = indices.findName(Branch.class);
+        String indexedKey = uniqueIdentifiers.findSingleKey(Branch.class);
+
+        try (IndexHits<Relationship> indexResults = graphDB.index()
+                 .forRelationships(indexName)
+                 .get(indexedKey, branchName)) {
+
+            return indexResults.getSingle();
+        }
+    }
+
     private Node cloneNode(Node formerNode) {
         Node clone = graphDB.createNode(labels.findAllLabels(Commit.class));
         setProperties(formerNode, clone);
@@ -483,25 +774,69 @@ public final class BIRGGIT {
         }
     }
 
-    private Relationship createUniqueRelationship(final Domain relationshipEntity) {
-        UniqueFactory.UniqueRelationshipFactory uniqueRelationshipFactory = new UniqueFactory.UniqueRelationshipFactory(graphDB, indices.findName(relationshipEntity)) {
-            @Override
-            protected Relationship create(Map<String, Object> properties) {
-                Node startNode = createUniqueNode(relationshipTypes.findStart(relationshipEntity));
-                Node endNode = createUniqueNode(relationshipTypes.findEnd(relationshipEntity));
-                Relationship relationship = startNode.createRelationshipTo(
-                    endNode,
-                    relationshipTypes.findRelationshipType(relationshipEntity)
-                );
-
-                for (Map.Entry<String, Object> keyValue : properties.entrySet()) {
-                    relationship.setProperty(keyValue.getKey(), keyValue.getValue());
+    /**
+     * Parent commits are unique by their commit nodes, not by an indexed identifier:
+     * the child is write-locked, then its few parents are scanned.
+     */
+    private Relationship createUniqueParentCommit(ParentCommit parentCommit) {
+        Node parent = createUniqueNode(parentCommit.getParent());
+        Node child = createUniqueNode(parentCommit.getChild());
+        RelationshipType parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            tx.acquireWriteLock(child);
+            Relationship result = null;
+            for (Relationship existing : child.getRelationships(parentType, INCOMING)) {
+                if (existing.getStartNode().equals(parent)) {
+                    result = existing;
+                    break;
                 }
-                return relationship;
             }
-        };
+            if (result == null) {
+                result = parent.createRelationshipTo(child, parentType);
+                generations.onParentAdded(result);
+            }
+            tx.success();
+            return result;
+        }
+    }
+
+    /**
+     * Lock resource of a branch, ordered by project then branch name.
+     */
+    private static final class BranchLock implements Comparable<BranchLock> {
+
+        private final String project;
+        private final String branch;
 
-        Entry<String, Object> identity = uniqueIdentifiers.findSingleKeyValue(relationshipEntity);
-        return uniqueRelationshipFactory.getOrCreate(identity.getKey(), identity.getValue());
+        private BranchLock(String project, String branch) {
+            this.project = project;
+            this.branch = branch;
+        }
+
+        @Override
+        public int compareTo(BranchLock other) {
+            int result = project.compareTo(other.project);
+            return result != 0 ? result : branch.compareTo(other.branch);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof BranchLock)) {
+                return false;
+            }
+            BranchLock lock = (BranchLock) other;
+            return project.equals(lock.project) && branch.equals(lock.branch);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(project, branch);
+        }
+
+        @Override
+        public String toString() {
+            return format("BranchLock[%s/%s]", project, branch);
+        }
     }
 }
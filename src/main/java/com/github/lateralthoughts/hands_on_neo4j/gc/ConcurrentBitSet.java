@@ -0,0 +1,39 @@
+package com.github.lateralthoughts.hands_on_neo4j.gc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed-size bit set which can be set concurrently, one bit per node id.
+ */
+final class ConcurrentBitSet {
+
+    private final AtomicLongArray words;
+
+    ConcurrentBitSet(long size) {
+        checkArgument(size >= 0, "Size should be positive");
+        checkArgument(size >> 6 < Integer.MAX_VALUE, "Size should fit in an array of longs");
+        this.words = new AtomicLongArray((int) (size >> 6) + 1);
+    }
+
+    /**
+     * @return true if the bit was not set yet
+     */
+    boolean set(long index) {
+        int word = (int) (index >> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    boolean get(long index) {
+        return (words.get((int) (index >> 6)) & 1L << index) != 0;
+    }
+}
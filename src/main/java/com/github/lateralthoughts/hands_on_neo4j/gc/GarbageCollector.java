@@ -0,0 +1,299 @@
+package com.github.lateralthoughts.hands_on_neo4j.gc;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.IndexFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.tooling.GlobalGraphOperations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Incrementally reclaims orphan commits, i.e. commits without any relationship left.
+ *
+ * Instead of scanning the whole store on each collection, the collector only inspects candidates:
+ * commits that were committed detached or that lost their last relationship, as seen by committed
+ * transactions. Candidates deleted meanwhile are forgotten, so that their node ids, once reused,
+ * do not point the collector at unrelated commits.
+ * Candidates are only hints: each one is write-locked then checked again before being deleted,
+ * hence commits linked by concurrent transactions are left alone.
+ * As candidates live in memory, the first collection scans the store once for the orphans
+ * left by previous runs or by other writers.
+ * Candidates are reclaimed in transactions of at most chunkSize commits, either on demand
+ * or in the background at a bounded rate.
+ */
+@Component
+public class GarbageCollector implements TransactionEventHandler<GarbageCollector.CandidateChanges> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final long IDLE_DELAY_MILLIS = 500;
+
+    private final GraphDatabaseService graphDB;
+    private final IndexFinder indices;
+    private final Label commitLabel;
+    private final Set<Long> candidates = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private final AtomicBoolean storeScanned = new AtomicBoolean();
+    private final AtomicLong inspected = new AtomicLong();
+    private final AtomicLong reclaimed = new AtomicLong();
+    private final Stopwatch backgroundTime = new Stopwatch();
+    private ScheduledExecutorService background;
+
+    @Autowired
+    public GarbageCollector(GraphDatabaseService graphDB, LabelFinder labels, IndexFinder indices) {
+        this.graphDB = graphDB;
+        this.indices = indices;
+        this.commitLabel = labels.findAllLabels(Commit.class)[0];
+        graphDB.registerTransactionEventHandler(this);
+    }
+
+    public int pendingCandidates() {
+        return candidates.size();
+    }
+
+    /**
+     * @see {@link this#collect(int)}
+     */
+    public GcReport collect() {
+        return collect(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Reclaims all pending orphan commits, chunkSize commits per transaction.
+     */
+    public GcReport collect(int chunkSize) {
+        checkArgument(chunkSize > 0, "Chunk size should be strictly positive");
+
+        Stopwatch stopwatch = new Stopwatch().start();
+        scanStoreOnce();
+        long inspectedCommits = 0;
+        long reclaimedCommits = 0;
+        List<Long> chunk;
+        while (!(chunk = nextChunk(chunkSize)).isEmpty()) {
+            inspectedCommits += chunk.size();
+            reclaimedCommits += reclaim(chunk);
+        }
+        return new GcReport(inspectedCommits, reclaimedCommits, candidates.size(), stopwatch.elapsed(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Reclaims orphan commits in the background, at most commitsPerSecond commits per second.
+     * Progress is reported by {@link #progress()}.
+     */
+    public synchronized void start(final int chunkSize, double commitsPerSecond) {
+        checkArgument(chunkSize > 0, "Chunk size should be strictly positive");
+        checkArgument(commitsPerSecond > 0, "Rate should be strictly positive");
+        checkState(background == null, "Garbage collector already started");
+
+        final RateLimiter rateLimiter = RateLimiter.create(commitsPerSecond);
+        background = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("birggit-gc-%d").setDaemon(true).build()
+        );
+        backgroundTime.reset().start();
+        background.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scanStoreOnce();
+                } catch (RuntimeException e) {
+                    // scanned again on next run
+                    return;
+                }
+                List<Long> chunk;
+                while (!Thread.currentThread().isInterrupted() && !(chunk = nextChunk(chunkSize)).isEmpty()) {
+                    rateLimiter.acquire(chunk.size());
+                    try {
+                        reclaim(chunk);
+                    } catch (RuntimeException e) {
+                        // failed chunks are back among candidates, retried on next run
+                        return;
+                    }
+                }
+            }
+        }, 0, IDLE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops background collection, waiting for the chunk in progress to be reclaimed.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (background == null) {
+            return;
+        }
+        background.shutdownNow();
+        background.awaitTermination(1, TimeUnit.MINUTES);
+        background = null;
+        backgroundTime.stop();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        graphDB.unregisterTransactionEventHandler(this);
+        stop();
+    }
+
+    public synchronized boolean isRunning() {
+        return background != null;
+    }
+
+    /**
+     * @return what has been reclaimed by this collector so far, along with the time spent in background
+     */
+    public synchronized GcReport progress() {
+        return new GcReport(inspected.get(), reclaimed.get(), candidates.size(), backgroundTime.elapsed(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Relationships of nodes are not reliably readable before commit, hence the transaction is only
+     * checked for commits that were created or lost a relationship, without gaining any.
+     *
+     * @return commits possibly created or left without relationships by the transaction, and deleted nodes
+     */
+    @Override
+    public CandidateChanges beforeCommit(TransactionData data) throws Exception {
+        Set<Long> linked = new HashSet<>();
+        for (Relationship relationship : data.createdRelationships()) {
+            if (!data.isDeleted(relationship)) {
+                linked.add(relationship.getStartNode().getId());
+                linked.add(relationship.getEndNode().getId());
+            }
+        }
+        CandidateChanges changes = new CandidateChanges();
+        for (Node node : data.createdNodes()) {
+            addIfOrphan(data, node, linked, changes.orphans);
+        }
+        for (Relationship relationship : data.deletedRelationships()) {
+            addIfOrphan(data, relationship.getStartNode(), linked, changes.orphans);
+            addIfOrphan(data, relationship.getEndNode(), linked, changes.orphans);
+        }
+        for (Node node : data.deletedNodes()) {
+            changes.deleted.add(node.getId());
+        }
+        return changes;
+    }
+
+    /**
+     * Candidates are only recorded once committed, so that collections never inspect them in an earlier state.
+     */
+    @Override
+    public void afterCommit(TransactionData data, CandidateChanges changes) {
+        if (changes != null) {
+            candidates.removeAll(changes.deleted);
+            candidates.addAll(changes.orphans);
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, CandidateChanges changes) {
+    }
+
+    private void addIfOrphan(TransactionData data, Node node, Set<Long> linked, Set<Long> orphans) {
+        if (!linked.contains(node.getId()) && !data.isDeleted(node) && node.hasLabel(commitLabel)) {
+            orphans.add(node.getId());
+        }
+    }
+
+    /**
+     * Seeds candidates with the orphans already in the store, on first call only.
+     */
+    private void scanStoreOnce() {
+        if (!storeScanned.compareAndSet(false, true)) {
+            return;
+        }
+        try (Transaction tx = graphDB.beginTx()) {
+            for (Node commit : GlobalGraphOperations.at(graphDB).getAllNodesWithLabel(commitLabel)) {
+                if (!commit.hasRelationship()) {
+                    candidates.add(commit.getId());
+                }
+            }
+            tx.success();
+        } catch (RuntimeException e) {
+            storeScanned.set(false);
+            throw e;
+        }
+    }
+
+    private List<Long> nextChunk(int chunkSize) {
+        List<Long> chunk = new ArrayList<>(Math.min(chunkSize, candidates.size()));
+        Iterator<Long> iterator = candidates.iterator();
+        while (chunk.size() < chunkSize && iterator.hasNext()) {
+            Long id = iterator.next();
+            if (candidates.remove(id)) {
+                chunk.add(id);
+            }
+        }
+        return chunk;
+    }
+
+    private int reclaim(List<Long> chunk) {
+        int result = 0;
+        try (Transaction tx = graphDB.beginTx()) {
+            Index<Node> commitIndex = graphDB.index().forNodes(indices.findName(Commit.class));
+            for (Long id : chunk) {
+                Node commit = findNode(id);
+                if (commit == null) {
+                    continue;
+                }
+                // relationships are created under the locks of both their nodes
+                tx.acquireWriteLock(commit);
+                if (commit.hasLabel(commitLabel) && !commit.hasRelationship()) {
+                    commitIndex.remove(commit);
+                    commit.delete();
+                    result++;
+                }
+            }
+            tx.success();
+        } catch (RuntimeException e) {
+            candidates.addAll(chunk);
+            throw e;
+        }
+        inspected.addAndGet(chunk.size());
+        reclaimed.addAndGet(result);
+        return result;
+    }
+
+    private Node findNode(long id) {
+        try {
+            return graphDB.getNodeById(id);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Candidate changes of a transaction, read before it is committed.
+     */
+    static final class CandidateChanges {
+
+        private final Set<Long> orphans = new HashSet<>();
+        private final Set<Long> deleted = new HashSet<>();
+    }
+}
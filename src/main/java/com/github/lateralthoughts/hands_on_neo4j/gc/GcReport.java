@@ -0,0 +1,59 @@
+package com.github.lateralthoughts.hands_on_neo4j.gc;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Progress of a garbage collection: how many candidates were inspected and reclaimed,
+ * how many are still pending and how long it took.
+ * Dry runs report reclaimable commits as reclaimed, without deleting them.
+ */
+public final class GcReport {
+
+    private final long inspected;
+    private final long reclaimed;
+    private final long pending;
+    private final long elapsedNanos;
+    private final boolean dryRun;
+
+    public GcReport(long inspected, long reclaimed, long pending, long elapsedNanos) {
+        this(inspected, reclaimed, pending, elapsedNanos, false);
+    }
+
+    public GcReport(long inspected, long reclaimed, long pending, long elapsedNanos, boolean dryRun) {
+        this.inspected = inspected;
+        this.reclaimed = reclaimed;
+        this.pending = pending;
+        this.elapsedNanos = elapsedNanos;
+        this.dryRun = dryRun;
+    }
+
+    public long getInspected() {
+        return inspected;
+    }
+
+    public long getReclaimed() {
+        return reclaimed;
+    }
+
+    public long getPending() {
+        return pending;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    @Override
+    public String toString() {
+        return format(
+            "%d commits %s out of %d inspected in %d ms, %d pending",
+            reclaimed, dryRun ? "reclaimable" : "reclaimed", inspected, getElapsed(TimeUnit.MILLISECONDS), pending
+        );
+    }
+}
@@ -0,0 +1,283 @@
+package com.github.lateralthoughts.hands_on_neo4j.gc;
+
+import com.github.lateralthoughts.hands_on_neo4j.commitgraph.CommitGraphIndex;
+import com.github.lateralthoughts.hands_on_neo4j.commitgraph.CommitVisitor;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.IndexFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.google.common.base.Stopwatch;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.Index;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.Direction.OUTGOING;
+import static org.neo4j.tooling.GlobalGraphOperations.at;
+
+/**
+ * Mark-and-sweep collector reclaiming every commit that is unreachable from all branch tips,
+ * including commits still linked to other unreachable commits, e.g. after amends.
+ *
+ * Commit ids are first snapshotted. Then everything reachable from branch tips is marked in a
+ * bit set indexed by node id, one fork/join task per tip. A task stops at commits already marked
+ * by another one, and walks the {@link CommitGraphIndex} mirror when it knows the tip. Finally unmarked commits of the snapshot are swept in transactions of at most
+ * chunkSize commits. Commits created after the snapshot are never swept. As the mark is stale
+ * by then, each unmarked commit is write-locked and verified again: it is kept if it or one of
+ * its children got a branch or if one of its children is not an unmarked commit of the snapshot.
+ * Older commits moved back under a branch tip while marking are not supported, so collection is
+ * best run when no branch is reset to an old commit.
+ */
+@Component
+public class ReachabilityCollector {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final GraphDatabaseService graphDB;
+    private final IndexFinder indices;
+    private final CommitGraphIndex commitGraph;
+    private final Label commitLabel;
+    private final Label projectLabel;
+    private final RelationshipType branchType;
+    private final RelationshipType parentType;
+    private final ForkJoinPool markers = new ForkJoinPool();
+
+    @Autowired
+    public ReachabilityCollector(GraphDatabaseService graphDB,
+                                 LabelFinder labels,
+                                 RelationTypeFinder relationshipTypes,
+                                 IndexFinder indices,
+                                 CommitGraphIndex commitGraph) {
+
+        this.graphDB = graphDB;
+        this.indices = indices;
+        this.commitGraph = commitGraph;
+        this.commitLabel = labels.findAllLabels(Commit.class)[0];
+        this.projectLabel = labels.findAllLabels(Project.class)[0];
+        this.branchType = relationshipTypes.findRelationshipType(Branch.class);
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+    }
+
+    /**
+     * @see {@link this#collect(int, boolean)}
+     */
+    public GcReport collect(boolean dryRun) {
+        return collect(DEFAULT_CHUNK_SIZE, dryRun);
+    }
+
+    /**
+     * @param dryRun whether to only count reclaimable commits, without deleting them
+     */
+    public GcReport collect(int chunkSize, boolean dryRun) {
+        checkArgument(chunkSize > 0, "Chunk size should be strictly positive");
+
+        Stopwatch stopwatch = new Stopwatch().start();
+        long[] commits = snapshotCommits();
+        long highestId = -1;
+        for (long commit : commits) {
+            highestId = Math.max(highestId, commit);
+        }
+
+        ConcurrentBitSet reachable = new ConcurrentBitSet(highestId + 1);
+        mark(reachable, highestId);
+
+        long unreachable = 0;
+        List<Long> chunk = new ArrayList<>(chunkSize);
+        long reclaimed = 0;
+        for (long commit : commits) {
+            if (reachable.get(commit)) {
+                continue;
+            }
+            unreachable++;
+            if (dryRun) {
+                continue;
+            }
+            chunk.add(commit);
+            if (chunk.size() == chunkSize) {
+                reclaimed += sweep(chunk, reachable, highestId);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            reclaimed += sweep(chunk, reachable, highestId);
+        }
+        return new GcReport(
+            commits.length,
+            dryRun ? unreachable : reclaimed,
+            0,
+            stopwatch.elapsed(TimeUnit.NANOSECONDS),
+            dryRun
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        markers.shutdownNow();
+    }
+
+    private long[] snapshotCommits() {
+        long[] result = new long[1024];
+        int size = 0;
+        try (Transaction tx = graphDB.beginTx();
+             ResourceIterator<Node> commits = at(graphDB).getAllNodesWithLabel(commitLabel).iterator()) {
+
+            while (commits.hasNext()) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = commits.next().getId();
+            }
+            tx.success();
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void mark(ConcurrentBitSet reachable, long highestId) {
+        final List<MarkTask> tasks = new ArrayList<>();
+        try (Transaction tx = graphDB.beginTx();
+             ResourceIterator<Node> projects = at(graphDB).getAllNodesWithLabel(projectLabel).iterator()) {
+
+            while (projects.hasNext()) {
+                for (Relationship branch : projects.next().getRelationships(branchType, OUTGOING)) {
+                    tasks.add(new MarkTask(branch.getEndNode().getId(), reachable, highestId));
+                }
+            }
+            tx.success();
+        }
+        markers.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private long sweep(List<Long> chunk, ConcurrentBitSet reachable, long highestId) {
+        long result = 0;
+        try (Transaction tx = graphDB.beginTx()) {
+            Index<Node> commitIndex = graphDB.index().forNodes(indices.findName(Commit.class));
+            for (Long id : chunk) {
+                Node commit = findNode(id);
+                if (commit == null) {
+                    continue;
+                }
+                // branches and children are linked under the lock of the commit
+                tx.acquireWriteLock(commit);
+                if (!commit.hasLabel(commitLabel) || !isStillUnreachable(tx, commit, reachable, highestId)) {
+                    continue;
+                }
+                for (Relationship relationship : commit.getRelationships(parentType)) {
+                    relationship.delete();
+                }
+                commitIndex.remove(commit);
+                commit.delete();
+                result++;
+            }
+            tx.success();
+        }
+        return result;
+    }
+
+    private boolean isStillUnreachable(Transaction tx, Node commit, ConcurrentBitSet reachable, long highestId) {
+        if (commit.hasRelationship(branchType, INCOMING)) {
+            return false;
+        }
+        for (Relationship relationship : commit.getRelationships(parentType, OUTGOING)) {
+            Node child = relationship.getEndNode();
+            tx.acquireWriteLock(child);
+            long childId = child.getId();
+            if (childId > highestId || reachable.get(childId) || child.hasRelationship(branchType, INCOMING)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Node findNode(long id) {
+        try {
+            return graphDB.getNodeById(id);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Marks the ancestors of a tip, in a transaction of its own as transactions are bound to threads.
+     */
+    private final class MarkTask extends RecursiveAction {
+
+        private final long tip;
+        private final ConcurrentBitSet reachable;
+        private final long highestId;
+
+        private MarkTask(long tip, ConcurrentBitSet reachable, long highestId) {
+            this.tip = tip;
+            this.reachable = reachable;
+            this.highestId = highestId;
+        }
+
+        @Override
+        protected void compute() {
+            boolean mirrored = commitGraph.servesCurrentThread() && commitGraph.walkAncestors(tip, new CommitVisitor() {
+                @Override
+                public boolean visit(long nodeId) {
+                    return mark(nodeId);
+                }
+            });
+            if (!mirrored) {
+                walkStore();
+            }
+        }
+
+        private void walkStore() {
+            try (Transaction tx = graphDB.beginTx()) {
+                Deque<Node> pending = new ArrayDeque<>();
+                Node tipCommit = findNode(tip);
+                if (tipCommit != null && mark(tip)) {
+                    pending.push(tipCommit);
+                }
+                while (!pending.isEmpty()) {
+                    for (Relationship relationship : pending.pop().getRelationships(parentType, INCOMING)) {
+                        Node parent = relationship.getStartNode();
+                        if (mark(parent.getId())) {
+                            pending.push(parent);
+                        }
+                    }
+                }
+                tx.success();
+            }
+        }
+
+        /**
+         * Commits created after the snapshot are never swept, hence not marked either,
+         * but their ancestors still have to be walked.
+         *
+         * @return whether the parents of the commit have to be walked
+         */
+        private boolean mark(long id) {
+            return id > highestId || reachable.set(id);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.Direction.OUTGOING;
+
+/**
+ * Maintains commit generation numbers, as git's commit-graph does:
+ * a root commit has generation 1, any other commit is one more than its highest parent.
+ *
+ * If A is an ancestor of B, then generation(A) &lt; generation(B), hence walks looking
+ * for A can skip every commit whose generation is lower than A's.
+ * Commits written before generations were maintained have an {@link #UNKNOWN} generation
+ * until {@link GenerationBackfill} runs, which never lets walks skip them.
+ *
+ * Must be called within a transaction.
+ */
+@Component
+public class CommitGenerations {
+
+    public static final String GENERATION = "generation";
+    public static final int ROOT_GENERATION = 1;
+    public static final int UNKNOWN = Integer.MAX_VALUE;
+
+    private final RelationshipType parentType;
+
+    @Autowired
+    public CommitGenerations(RelationTypeFinder relationshipTypes) {
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+    }
+
+    public int generationOf(Node commit) {
+        return (Integer) commit.getProperty(GENERATION, UNKNOWN);
+    }
+
+    /**
+     * Sets the generation of a newly created commit, which has no parent yet.
+     */
+    public void initialize(Node commit) {
+        checkNotNull(commit);
+        if (!commit.hasProperty(GENERATION)) {
+            commit.setProperty(GENERATION, ROOT_GENERATION);
+        }
+    }
+
+    /**
+     * Recomputes the generation of the child commit of a newly created {@link ParentCommit}
+     * relationship, then of its descendants whenever needed.
+     */
+    public void onParentAdded(Relationship parentCommit) {
+        checkNotNull(parentCommit);
+
+        Deque<Node> updated = new ArrayDeque<>();
+        refresh(parentCommit.getEndNode(), updated);
+        while (!updated.isEmpty()) {
+            for (Relationship relationship : updated.poll().getRelationships(parentType, OUTGOING)) {
+                refresh(relationship.getEndNode(), updated);
+            }
+        }
+    }
+
+    /**
+     * @return the generation a commit should have given its parents, {@link #UNKNOWN} if any of theirs is
+     */
+    public int computeGeneration(Node commit) {
+        int result = ROOT_GENERATION;
+        for (Relationship relationship : commit.getRelationships(parentType, INCOMING)) {
+            result = Math.max(result, next(generationOf(relationship.getStartNode())));
+        }
+        return result;
+    }
+
+    private void refresh(Node commit, Deque<Node> updated) {
+        int generation = computeGeneration(commit);
+        if (generation == generationOf(commit)) {
+            return;
+        }
+        if (generation == UNKNOWN) {
+            commit.removeProperty(GENERATION);
+        } else {
+            commit.setProperty(GENERATION, generation);
+        }
+        updated.add(commit);
+    }
+
+    private static int next(int generation) {
+        return generation == UNKNOWN ? UNKNOWN : generation + 1;
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.neo4j.graphdb.Node;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A page of logged commits, along with the opaque cursor of the next page, if any.
+ */
+public final class CommitPage {
+
+    private final ImmutableList<Node> commits;
+    private final Optional<String> nextCursor;
+
+    CommitPage(ImmutableList<Node> commits, Optional<String> nextCursor) {
+        this.commits = checkNotNull(commits);
+        this.nextCursor = checkNotNull(nextCursor);
+    }
+
+    public ImmutableList<Node> getCommits() {
+        return commits;
+    }
+
+    public boolean hasNext() {
+        return nextCursor.isPresent();
+    }
+
+    /**
+     * @return the cursor to pass to get the next page, absent if this page is the last one
+     */
+    public Optional<String> getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Lazily logs commits as detached {@link Commit} views, which remain readable once the stream is closed.
+ *
+ * The stream owns the transaction it reads from: the transaction stays open while the stream
+ * is consumed and is closed as soon as the stream is exhausted or closed, whichever comes first.
+ * Like any Neo4J transaction, it is bound to the thread that opened it, hence the stream
+ * has to be consumed and closed by that same thread, preferably in a try-with-resources block.
+ */
+public final class CommitStream implements ResourceIterator<Commit> {
+
+    private final Transaction transaction;
+    private final Iterator<Node> commits;
+    private boolean closed;
+
+    CommitStream(Transaction transaction, Iterator<Node> commits) {
+        this.transaction = checkNotNull(transaction);
+        this.commits = checkNotNull(commits);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (commits.hasNext()) {
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public Commit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Node commit = commits.next();
+        return new Commit(
+            commit.getProperty("identifier").toString(),
+            (String) commit.getProperty("message", null)
+        );
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            transaction.success();
+        } finally {
+            transaction.close();
+        }
+    }
+}
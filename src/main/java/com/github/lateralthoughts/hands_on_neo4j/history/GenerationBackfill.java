@@ -0,0 +1,126 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.Direction.OUTGOING;
+import static org.neo4j.tooling.GlobalGraphOperations.at;
+
+/**
+ * One-off job computing the generation of every commit of an existing store,
+ * see {@link CommitGenerations}.
+ *
+ * Commits are visited in topological order, parents first, and written in transactions
+ * of at most chunkSize commits. The number of pending parents of each commit is kept in memory.
+ */
+@Component
+public class GenerationBackfill {
+
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    private final GraphDatabaseService graphDB;
+    private final CommitGenerations generations;
+    private final Label commitLabel;
+    private final RelationshipType parentType;
+
+    @Autowired
+    public GenerationBackfill(GraphDatabaseService graphDB,
+                              CommitGenerations generations,
+                              LabelFinder labels,
+                              RelationTypeFinder relationshipTypes) {
+
+        this.graphDB = graphDB;
+        this.generations = generations;
+        this.commitLabel = labels.findAllLabels(Commit.class)[0];
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+    }
+
+    /**
+     * @see {@link this#backfill(int)}
+     */
+    public long backfill() {
+        return backfill(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @return the number of commits whose generation has been written
+     */
+    public long backfill(int chunkSize) {
+        checkArgument(chunkSize > 0, "Chunk size should be strictly positive");
+
+        Map<Long, Integer> pendingParents = new HashMap<>();
+        Deque<Long> ready = new ArrayDeque<>();
+        countParents(pendingParents, ready);
+
+        long updated = 0;
+        while (!ready.isEmpty()) {
+            try (Transaction tx = graphDB.beginTx()) {
+                for (int i = 0; i < chunkSize && !ready.isEmpty(); i++) {
+                    Node commit = graphDB.getNodeById(ready.poll());
+                    int generation = generations.computeGeneration(commit);
+                    if (generation != generations.generationOf(commit)) {
+                        commit.setProperty(CommitGenerations.GENERATION, generation);
+                        updated++;
+                    }
+                    releaseChildren(commit, pendingParents, ready);
+                }
+                tx.success();
+            }
+        }
+        return updated;
+    }
+
+    private void countParents(Map<Long, Integer> pendingParents, Deque<Long> ready) {
+        try (Transaction tx = graphDB.beginTx();
+             ResourceIterator<Node> commits = at(graphDB).getAllNodesWithLabel(commitLabel).iterator()) {
+
+            while (commits.hasNext()) {
+                Node commit = commits.next();
+                int parents = 0;
+                for (Relationship ignored : commit.getRelationships(parentType, INCOMING)) {
+                    parents++;
+                }
+                if (parents == 0) {
+                    ready.add(commit.getId());
+                } else {
+                    pendingParents.put(commit.getId(), parents);
+                }
+            }
+            tx.success();
+        }
+    }
+
+    private void releaseChildren(Node commit, Map<Long, Integer> pendingParents, Deque<Long> ready) {
+        for (Relationship relationship : commit.getRelationships(parentType, OUTGOING)) {
+            long child = relationship.getEndNode().getId();
+            Integer pending = pendingParents.get(child);
+            if (pending == null) {
+                continue;
+            }
+            if (pending == 1) {
+                pendingParents.remove(child);
+                ready.add(child);
+            } else {
+                pendingParents.put(child, pending - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.neo4j.graphdb.Direction.INCOMING;
+
+/**
+ * Walks commits from a frontier, highest generation first, then highest node id.
+ *
+ * A commit has a strictly higher generation than its parents, hence all the children of
+ * a commit reachable from the frontier are visited before it: only the frontier has
+ * to be remembered to avoid visiting a commit twice.
+ * This does not hold among commits of {@link CommitGenerations#UNKNOWN} generation,
+ * which have to be backfilled first.
+ */
+final class GenerationOrderedWalk extends AbstractIterator<Node> {
+
+    private static final Comparator<FrontierCommit> WALK_ORDER = new Comparator<FrontierCommit>() {
+        @Override
+        public int compare(FrontierCommit first, FrontierCommit second) {
+            int result = Integer.compare(second.generation, first.generation);
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(second.commit.getId(), first.commit.getId());
+        }
+    };
+
+    private final CommitGenerations generations;
+    private final RelationshipType parentType;
+    private final Queue<FrontierCommit> frontier = new PriorityQueue<>(16, WALK_ORDER);
+    private final Set<Long> frontierIds = new HashSet<>();
+
+    GenerationOrderedWalk(CommitGenerations generations, RelationshipType parentType, Iterable<Node> frontier) {
+        this.generations = generations;
+        this.parentType = parentType;
+        for (Node commit : frontier) {
+            push(commit);
+        }
+    }
+
+    /**
+     * @return ids of the commits left to visit, in walk order
+     */
+    ImmutableList<Long> frontier() {
+        PriorityQueue<FrontierCommit> copy = new PriorityQueue<>(frontier);
+        ImmutableList.Builder<Long> result = ImmutableList.builder();
+        while (!copy.isEmpty()) {
+            result.add(copy.poll().commit.getId());
+        }
+        return result.build();
+    }
+
+    @Override
+    protected Node computeNext() {
+        FrontierCommit next = frontier.poll();
+        if (next == null) {
+            return endOfData();
+        }
+        frontierIds.remove(next.commit.getId());
+        for (Relationship relationship : next.commit.getRelationships(parentType, INCOMING)) {
+            push(relationship.getStartNode());
+        }
+        return next.commit;
+    }
+
+    private void push(Node commit) {
+        if (frontierIds.add(commit.getId())) {
+            frontier.add(new FrontierCommit(commit, generations.generationOf(commit)));
+        }
+    }
+
+    private static final class FrontierCommit {
+
+        private final Node commit;
+        private final int generation;
+
+        private FrontierCommit(Node commit, int generation) {
+            this.commit = commit;
+            this.generation = generation;
+        }
+    }
+}
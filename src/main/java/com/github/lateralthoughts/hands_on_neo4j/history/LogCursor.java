@@ -0,0 +1,46 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Encodes the frontier of a paginated log as an URL-safe token.
+ * The token holds a format version, then the node id of each frontier commit.
+ */
+final class LogCursor {
+
+    private static final byte VERSION = 1;
+    private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    private LogCursor() {}
+
+    static String encode(List<Long> frontier) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + frontier.size() * 8);
+        buffer.put(VERSION);
+        for (long id : frontier) {
+            buffer.putLong(id);
+        }
+        return ENCODING.encode(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static ImmutableList<Long> decode(String cursor) {
+        checkArgument(cursor != null && !cursor.isEmpty(), "Cursor should not be empty");
+
+        ByteBuffer buffer = ByteBuffer.wrap(ENCODING.decode(cursor));
+        checkArgument(buffer.remaining() % 8 == 1 && buffer.get() == VERSION, "Malformed cursor: %s", cursor);
+
+        ImmutableList.Builder<Long> frontier = ImmutableList.builder();
+        while (buffer.hasRemaining()) {
+            frontier.add(buffer.getLong());
+        }
+        return frontier.build();
+    }
+}
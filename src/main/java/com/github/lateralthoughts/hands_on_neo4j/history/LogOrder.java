@@ -0,0 +1,17 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+/**
+ * Output order of logged commits.
+ */
+public enum LogOrder {
+
+    /**
+     * Children before their parents, highest generation first.
+     */
+    TOPOLOGICAL,
+
+    /**
+     * Most recently inserted commits first, whatever their ancestry.
+     */
+    INSERTION
+}
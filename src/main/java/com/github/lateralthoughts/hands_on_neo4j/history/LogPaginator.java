@@ -0,0 +1,77 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.RelationshipType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Logs commits page by page, highest generation first.
+ *
+ * Instead of walking again from the branch tip, each page resumes from the frontier
+ * saved in the cursor of the previous one, so that a page costs O(limit) visits.
+ *
+ * Must be called within a transaction.
+ */
+@Component
+public class LogPaginator {
+
+    private final GraphDatabaseService graphDB;
+    private final CommitGenerations generations;
+    private final RelationshipType parentType;
+
+    @Autowired
+    public LogPaginator(GraphDatabaseService graphDB,
+                        CommitGenerations generations,
+                        RelationTypeFinder relationshipTypes) {
+
+        this.graphDB = graphDB;
+        this.generations = generations;
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+    }
+
+    public CommitPage firstPage(Node tip, int limit) {
+        checkNotNull(tip);
+        return page(ImmutableList.of(tip), limit);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or refers to deleted commits
+     */
+    public CommitPage nextPage(String cursor, int limit) {
+        ImmutableList.Builder<Node> frontier = ImmutableList.builder();
+        for (long id : LogCursor.decode(cursor)) {
+            try {
+                frontier.add(graphDB.getNodeById(id));
+            } catch (NotFoundException e) {
+                throw new IllegalArgumentException("Cursor refers to a deleted commit", e);
+            }
+        }
+        return page(frontier.build(), limit);
+    }
+
+    private CommitPage page(ImmutableList<Node> frontier, int limit) {
+        checkArgument(limit > 0, "Limit of commits to log should be strictly positive");
+
+        GenerationOrderedWalk walk = new GenerationOrderedWalk(generations, parentType, frontier);
+        ImmutableList.Builder<Node> commits = ImmutableList.builder();
+        for (int i = 0; i < limit && walk.hasNext(); i++) {
+            commits.add(walk.next());
+        }
+
+        ImmutableList<Long> remaining = walk.frontier();
+        return new CommitPage(
+            commits.build(),
+            remaining.isEmpty() ? Optional.<String>absent() : Optional.of(LogCursor.encode(remaining))
+        );
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.google.common.collect.ImmutableList;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Opens {@link CommitStream}s walking commits highest generation first.
+ * Full logs only hold the walk frontier in memory, whatever the number of logged commits.
+ */
+@Component
+public class LogStreamer {
+
+    private final CommitGenerations generations;
+    private final RelationshipType parentType;
+    private final RangeWalker rangeWalker;
+
+    @Autowired
+    public LogStreamer(CommitGenerations generations, RelationTypeFinder relationshipTypes, RangeWalker rangeWalker) {
+        this.generations = generations;
+        this.rangeWalker = rangeWalker;
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+    }
+
+    /**
+     * Streams all ancestors of the provided tip, tip included.
+     * The returned stream takes ownership of the provided transaction.
+     */
+    public CommitStream stream(Transaction transaction, Node tip) {
+        checkNotNull(tip);
+        return new CommitStream(transaction, walk(tip));
+    }
+
+    /**
+     * Streams the commits {@link RangeWalker} logs for the <code>excluded..included</code> range,
+     * followed by its boundary commits. Commits visited by the walk are remembered until the stream is closed.
+     * The returned stream takes ownership of the provided transaction.
+     */
+    public CommitStream streamRange(Transaction transaction, Node excluded, Node included) {
+        return new CommitStream(transaction, rangeWalker.stream(excluded, included, true));
+    }
+
+    private Iterator<Node> walk(Node tip) {
+        return new GenerationOrderedWalk(generations, parentType, ImmutableList.of(tip));
+    }
+}
@@ -0,0 +1,250 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.google.common.collect.ImmutableList;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.neo4j.graphdb.Direction.INCOMING;
+
+/**
+ * Computes the best common ancestors of two commits, like <code>git merge-base --all</code>.
+ *
+ * Both sides are walked at once: each commit is painted with the side(s) it is reachable from.
+ * A commit painted by both sides is a candidate and paints its own ancestors as stale, so that
+ * the walk stops as soon as only stale commits remain to be visited. Candidates reachable from
+ * another candidate are finally discarded.
+ * Every commit is visited a bounded number of times, as its paint can only grow. Commits are
+ * visited by decreasing generation (see {@link CommitGenerations}), so that the ancestors of a
+ * candidate are usually painted stale before being visited, and walks looking for a given commit
+ * stop at lower generations.
+ *
+ * Must be called within a transaction.
+ */
+@Component
+public class MergeBaseFinder {
+
+    private static final int FIRST = 1;
+    private static final int SECOND = 1 << 1;
+    private static final int BOTH = FIRST | SECOND;
+    private static final int STALE = 1 << 2;
+    private static final int QUEUED = 1 << 3;
+    private static final int PROPAGATED = BOTH | STALE;
+
+    private static final Comparator<QueuedCommit> HIGHEST_GENERATION_FIRST = new Comparator<QueuedCommit>() {
+        @Override
+        public int compare(QueuedCommit first, QueuedCommit second) {
+            return Integer.compare(second.generation, first.generation);
+        }
+    };
+
+    private final RelationshipType parentType;
+    private final CommitGenerations generations;
+
+    @Autowired
+    public MergeBaseFinder(RelationTypeFinder relationshipTypes, CommitGenerations generations) {
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+        this.generations = generations;
+    }
+
+    /**
+     * @return true if the first provided commit is the second one or one of its ancestors
+     */
+    public boolean isAncestor(Node ancestor, Node descendant) {
+        checkNotNull(ancestor);
+        checkNotNull(descendant);
+
+        if (ancestor.getId() == descendant.getId()) {
+            return true;
+        }
+        int minGeneration = generations.generationOf(ancestor);
+        if (minGeneration != CommitGenerations.UNKNOWN && minGeneration >= generations.generationOf(descendant)) {
+            return false;
+        }
+
+        Set<Long> visited = new HashSet<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        enqueueParents(descendant, minGeneration, visited, queue);
+        while (!queue.isEmpty()) {
+            Node current = queue.poll();
+            if (current.getId() == ancestor.getId()) {
+                return true;
+            }
+            enqueueParents(current, minGeneration, visited, queue);
+        }
+        return false;
+    }
+
+    /**
+     * @return the best common ancestor of the provided commits, null if they do not share any history
+     */
+    public Node findMergeBase(Node first, Node second) {
+        ImmutableList<Node> mergeBases = findMergeBases(first, second);
+        return mergeBases.isEmpty() ? null : mergeBases.get(0);
+    }
+
+    /**
+     * @return every common ancestor of the provided commits that is not an ancestor
+     * of another common ancestor, in discovery order
+     */
+    public ImmutableList<Node> findMergeBases(Node first, Node second) {
+        checkNotNull(first);
+        checkNotNull(second);
+
+        if (first.getId() == second.getId()) {
+            return ImmutableList.of(first);
+        }
+
+        Walk walk = new Walk();
+        walk.paint(first, FIRST);
+        walk.paint(second, SECOND);
+        List<Node> candidates = walk.paintDownToCommon();
+
+        List<Node> mergeBases = new ArrayList<>(candidates.size());
+        for (Node candidate : candidates) {
+            if ((walk.flags(candidate.getId()) & STALE) == 0) {
+                mergeBases.add(candidate);
+            }
+        }
+        return removeRedundant(mergeBases);
+    }
+
+    /**
+     * Drops candidates that are ancestors of other candidates, walking once from all of their parents
+     * down to the lowest candidate generation.
+     */
+    private ImmutableList<Node> removeRedundant(List<Node> candidates) {
+        if (candidates.size() < 2) {
+            return ImmutableList.copyOf(candidates);
+        }
+
+        Set<Long> candidateIds = new HashSet<>();
+        int minGeneration = CommitGenerations.UNKNOWN;
+        for (Node candidate : candidates) {
+            candidateIds.add(candidate.getId());
+            minGeneration = Math.min(minGeneration, generations.generationOf(candidate));
+        }
+
+        Set<Long> visited = new HashSet<>();
+        Set<Long> redundant = new HashSet<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        for (Node candidate : candidates) {
+            enqueueParents(candidate, minGeneration, visited, queue);
+        }
+        while (!queue.isEmpty() && redundant.size() < candidateIds.size() - 1) {
+            Node current = queue.poll();
+            if (candidateIds.contains(current.getId())) {
+                redundant.add(current.getId());
+            }
+            enqueueParents(current, minGeneration, visited, queue);
+        }
+
+        ImmutableList.Builder<Node> result = ImmutableList.builder();
+        for (Node candidate : candidates) {
+            if (!redundant.contains(candidate.getId())) {
+                result.add(candidate);
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Enqueues the parents that have not been visited yet, unless their generation is
+     * lower than the provided one: none of their ancestors can then reach that generation.
+     */
+    private void enqueueParents(Node node, int minGeneration, Set<Long> visited, Deque<Node> queue) {
+        for (Relationship relationship : node.getRelationships(parentType, INCOMING)) {
+            Node parent = relationship.getStartNode();
+            if (generations.generationOf(parent) >= minGeneration && visited.add(parent.getId())) {
+                queue.add(parent);
+            }
+        }
+    }
+
+    private final class Walk {
+
+        private final Map<Long, Integer> flags = new HashMap<>();
+        private final Queue<QueuedCommit> queue = new PriorityQueue<>(64, HIGHEST_GENERATION_FIRST);
+        private int queuedNonStale;
+
+        int flags(long nodeId) {
+            Integer result = flags.get(nodeId);
+            return result == null ? 0 : result;
+        }
+
+        List<Node> paintDownToCommon() {
+            List<Node> candidates = new ArrayList<>();
+            Set<Long> candidateIds = new HashSet<>();
+
+            while (queuedNonStale > 0) {
+                Node current = queue.poll().commit;
+                long id = current.getId();
+                int currentFlags = flags(id) & ~QUEUED;
+                flags.put(id, currentFlags);
+                if ((currentFlags & STALE) == 0) {
+                    queuedNonStale--;
+                }
+
+                int propagated = currentFlags & PROPAGATED;
+                if ((currentFlags & (BOTH | STALE)) == BOTH) {
+                    if (candidateIds.add(id)) {
+                        candidates.add(current);
+                    }
+                    propagated |= STALE;
+                }
+                for (Relationship relationship : current.getRelationships(parentType, INCOMING)) {
+                    paint(relationship.getStartNode(), propagated);
+                }
+            }
+            return candidates;
+        }
+
+        void paint(Node node, int paint) {
+            long id = node.getId();
+            int previous = flags(id);
+            int next = previous | paint;
+            if (next == previous) {
+                return;
+            }
+
+            if ((previous & QUEUED) == 0) {
+                queue.add(new QueuedCommit(node, generations.generationOf(node)));
+                next |= QUEUED;
+                if ((next & STALE) == 0) {
+                    queuedNonStale++;
+                }
+            } else if ((previous & STALE) == 0 && (next & STALE) != 0) {
+                queuedNonStale--;
+            }
+            flags.put(id, next);
+        }
+    }
+
+    private static final class QueuedCommit {
+
+        private final Node commit;
+        private final int generation;
+
+        private QueuedCommit(Node commit, int generation) {
+            this.commit = commit;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.neo4j.graphdb.Direction.INCOMING;
+
+/**
+ * Logs <code>A..B</code> ranges: commits reachable from B but not from A, like <code>git log A..B</code>.
+ *
+ * Both tips are walked at once, highest generation first. Commits reachable from A are painted
+ * uninteresting and pass their paint on to their parents. As all the children of a commit are
+ * visited before it, its paint is final when it is visited, hence interesting commits can be
+ * emitted right away. The walk stops as soon as only uninteresting commits remain to be visited,
+ * so that shared history is never walked beyond the range boundary.
+ * This ordering requires commit generations, see {@link GenerationBackfill}.
+ *
+ * Must be called within a transaction.
+ */
+@Component
+public class RangeWalker {
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private static final int UNINTERESTING = 1;
+    private static final int BOUNDARY = 1 << 1;
+    private static final int QUEUED = 1 << 2;
+
+    private static final Comparator<Node> MOST_RECENTLY_INSERTED_FIRST = new Comparator<Node>() {
+        @Override
+        public int compare(Node first, Node second) {
+            return Long.compare(second.getId(), first.getId());
+        }
+    };
+
+    private static final Comparator<QueuedCommit> HIGHEST_GENERATION_FIRST = new Comparator<QueuedCommit>() {
+        @Override
+        public int compare(QueuedCommit first, QueuedCommit second) {
+            int result = Integer.compare(second.generation, first.generation);
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(second.commit.getId(), first.commit.getId());
+        }
+    };
+
+    private final CommitGenerations generations;
+    private final RelationshipType parentType;
+
+    @Autowired
+    public RangeWalker(CommitGenerations generations, RelationTypeFinder relationshipTypes) {
+        this.generations = generations;
+        this.parentType = relationshipTypes.findRelationshipType(ParentCommit.class);
+    }
+
+    /**
+     * @see {@link this#walk(Node, Node, LogOrder, int, boolean)}
+     */
+    public ImmutableList<Node> walk(Node excluded, Node included, LogOrder order, int limit) {
+        return walk(excluded, included, order, limit, false);
+    }
+
+    /**
+     * @param limit maximum number of range commits, {@link #NO_LIMIT} for all of them
+     * @param withBoundary whether to append, after the range commits, the excluded commits they are children of
+     */
+    public ImmutableList<Node> walk(Node excluded, Node included, LogOrder order, int limit, boolean withBoundary) {
+        checkNotNull(excluded);
+        checkNotNull(included);
+        checkNotNull(order);
+        checkArgument(limit > 0, "Limit of commits to log should be strictly positive");
+
+        Walk walk = new Walk();
+        walk.push(excluded, UNINTERESTING);
+        walk.push(included, 0);
+
+        int walkLimit = order == LogOrder.TOPOLOGICAL ? limit : NO_LIMIT;
+        List<Node> range = new ArrayList<>();
+        List<Node> boundary = new ArrayList<>();
+        walk.run(walkLimit, range, boundary);
+
+        ImmutableList.Builder<Node> result = ImmutableList.builder();
+        if (order == LogOrder.INSERTION) {
+            Collections.sort(range, MOST_RECENTLY_INSERTED_FIRST);
+            result.addAll(range.subList(0, Math.min(limit, range.size())));
+        } else {
+            result.addAll(range);
+        }
+        if (withBoundary) {
+            result.addAll(boundary);
+        }
+        return result.build();
+    }
+
+    /**
+     * Lazy counterpart of {@link #walk(Node, Node, LogOrder, int, boolean)} in {@link LogOrder#TOPOLOGICAL} order:
+     * range commits are walked as they are consumed, boundary commits come once the range is exhausted.
+     * The returned iterator has to be consumed within the transaction it has been opened in.
+     */
+    public Iterator<Node> stream(Node excluded, Node included, final boolean withBoundary) {
+        checkNotNull(excluded);
+        checkNotNull(included);
+
+        final Walk walk = new Walk();
+        walk.push(excluded, UNINTERESTING);
+        walk.push(included, 0);
+        return new AbstractIterator<Node>() {
+            private final List<Node> boundary = new ArrayList<>();
+            private Iterator<Node> boundaryCommits;
+
+            @Override
+            protected Node computeNext() {
+                if (boundaryCommits == null) {
+                    Node commit = walk.nextInRange(boundary);
+                    if (commit != null) {
+                        return commit;
+                    }
+                    walk.drainBoundary(boundary);
+                    boundaryCommits = withBoundary ? boundary.iterator() : Iterators.<Node>emptyIterator();
+                }
+                return boundaryCommits.hasNext() ? boundaryCommits.next() : endOfData();
+            }
+        };
+    }
+
+    private final class Walk {
+
+        private final Map<Long, Integer> flags = new HashMap<>();
+        private final Queue<QueuedCommit> queue = new PriorityQueue<>(16, HIGHEST_GENERATION_FIRST);
+        private int queuedInteresting;
+
+        void run(int limit, List<Node> range, List<Node> boundary) {
+            Node commit;
+            while (range.size() < limit && (commit = nextInRange(boundary)) != null) {
+                range.add(commit);
+            }
+            drainBoundary(boundary);
+        }
+
+        /**
+         * @return the next range commit, or null once only uninteresting commits remain queued
+         */
+        Node nextInRange(List<Node> boundary) {
+            while (queuedInteresting > 0) {
+                Node commit = queue.poll().commit;
+                int commitFlags = flags.get(commit.getId()) & ~QUEUED;
+                flags.put(commit.getId(), commitFlags);
+
+                if ((commitFlags & UNINTERESTING) != 0) {
+                    if ((commitFlags & BOUNDARY) != 0) {
+                        boundary.add(commit);
+                    }
+                    pushParents(commit, UNINTERESTING);
+                    continue;
+                }
+                queuedInteresting--;
+                pushParents(commit, BOUNDARY);
+                return commit;
+            }
+            return null;
+        }
+
+        void drainBoundary(List<Node> boundary) {
+            while (!queue.isEmpty()) {
+                Node commit = queue.poll().commit;
+                int commitFlags = flags.get(commit.getId());
+                if ((commitFlags & (UNINTERESTING | BOUNDARY)) == (UNINTERESTING | BOUNDARY)) {
+                    boundary.add(commit);
+                }
+            }
+        }
+
+        void pushParents(Node commit, int paint) {
+            for (Relationship relationship : commit.getRelationships(parentType, INCOMING)) {
+                push(relationship.getStartNode(), paint);
+            }
+        }
+
+        void push(Node commit, int paint) {
+            long id = commit.getId();
+            Integer current = flags.get(id);
+            int previous = current == null ? 0 : current;
+            int next = previous | paint;
+            if (current != null && next == previous) {
+                return;
+            }
+
+            if (current == null) {
+                queue.add(new QueuedCommit(commit, generations.generationOf(commit)));
+                next |= QUEUED;
+                if ((next & UNINTERESTING) == 0) {
+                    queuedInteresting++;
+                }
+            } else if ((previous & QUEUED) != 0 && (previous & UNINTERESTING) == 0 && (next & UNINTERESTING) != 0) {
+                queuedInteresting--;
+            }
+            flags.put(id, next);
+        }
+    }
+
+    private static final class QueuedCommit {
+
+        private final Node commit;
+        private final int generation;
+
+        private QueuedCommit(Node commit, int generation) {
+            this.commit = commit;
+            this.generation = generation;
+        }
+    }
+}
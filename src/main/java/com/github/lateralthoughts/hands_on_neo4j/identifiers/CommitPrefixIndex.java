@@ -0,0 +1,294 @@
+package com.github.lateralthoughts.hands_on_neo4j.identifiers;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.UnsignedBytes;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.immutableEntry;
+import static org.neo4j.tooling.GlobalGraphOperations.at;
+
+/**
+ * Resolves abbreviated commit identifiers, as typed by users, without scanning commits.
+ *
+ * Identifiers live in a compact {@link SortedIdentifiers} base, loaded from the store on first lookup,
+ * and are kept current as transactions commit, whichever BIRGGIT operation runs them:
+ * created identifiers go to a sorted delta and removed ones are hidden by identifier and node id, until the delta
+ * grows large enough to be merged into a new base. Lookups take a binary search in the base
+ * plus a skip list seek in the delta, and never lock.
+ *
+ * Only committed identifiers are found: commits of the current transaction are not visible yet.
+ */
+@Component
+public class CommitPrefixIndex implements TransactionEventHandler<CommitPrefixIndex.IdentifierChanges> {
+
+    public static final int MAX_CANDIDATES = 10;
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1024;
+
+    private static final String IDENTIFIER = "identifier";
+    private static final Comparator<Map.Entry<byte[], Long>> KEY_ORDER = new Comparator<Map.Entry<byte[], Long>>() {
+        @Override
+        public int compare(Map.Entry<byte[], Long> first, Map.Entry<byte[], Long> second) {
+            return UnsignedBytes.lexicographicalComparator().compare(first.getKey(), second.getKey());
+        }
+    };
+
+    private final GraphDatabaseService graphDB;
+    private final Label commitLabel;
+    private final int compactionThreshold;
+    private volatile State state = new State(null);
+
+    @Autowired
+    public CommitPrefixIndex(GraphDatabaseService graphDB, LabelFinder labels) {
+        this(graphDB, labels, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param compactionThreshold minimum number of delta entries and removals triggering a merge
+     */
+    public CommitPrefixIndex(GraphDatabaseService graphDB, LabelFinder labels, int compactionThreshold) {
+        checkArgument(compactionThreshold > 0, "Compaction threshold should be strictly positive");
+
+        this.graphDB = graphDB;
+        this.commitLabel = labels.findAllLabels(Commit.class)[0];
+        this.compactionThreshold = compactionThreshold;
+        graphDB.registerTransactionEventHandler(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        graphDB.unregisterTransactionEventHandler(this);
+    }
+
+    /**
+     * Finds the commit whose identifier starts with the provided prefix.
+     * An identifier equal to the prefix wins over longer ones.
+     */
+    public PrefixMatch find(String prefix) {
+        checkNotNull(prefix);
+        checkArgument(!prefix.isEmpty(), "Commit identifier prefix should not be empty");
+
+        State current = loaded();
+        SortedIdentifiers base = current.base;
+        byte[] key = prefix.getBytes(SortedIdentifiers.UTF_8);
+        int first = base.lowerBound(key);
+        // looked up before candidates are capped, however many longer identifiers there are
+        for (int i = first; i < base.size() && base.isKey(i, key); i++) {
+            if (!isRemoved(current, prefix, base.nodeId(i))) {
+                return PrefixMatch.unique(prefix, base.nodeId(i));
+            }
+        }
+        Long exact = current.added.get(prefix);
+        if (exact != null) {
+            return PrefixMatch.unique(prefix, exact);
+        }
+
+        Map<Long, String> candidates = new LinkedHashMap<>();
+        for (int i = first; i < base.size() && base.startsWith(i, key) && candidates.size() < MAX_CANDIDATES; i++) {
+            String identifier = base.identifier(i);
+            if (!isRemoved(current, identifier, base.nodeId(i)) && !candidates.containsKey(base.nodeId(i))) {
+                candidates.put(base.nodeId(i), identifier);
+            }
+        }
+        for (Map.Entry<String, Long> added : current.added.tailMap(prefix).entrySet()) {
+            if (!added.getKey().startsWith(prefix) || candidates.size() == MAX_CANDIDATES) {
+                break;
+            }
+            if (!candidates.containsKey(added.getValue())) {
+                candidates.put(added.getValue(), added.getKey());
+            }
+        }
+
+        if (candidates.size() == 1) {
+            Map.Entry<Long, String> candidate = candidates.entrySet().iterator().next();
+            return PrefixMatch.unique(candidate.getValue(), candidate.getKey());
+        }
+        if (candidates.isEmpty()) {
+            return PrefixMatch.none();
+        }
+        List<String> identifiers = new ArrayList<>(candidates.values());
+        Collections.sort(identifiers);
+        return PrefixMatch.ambiguous(ImmutableList.copyOf(identifiers));
+    }
+
+    /**
+     * @return the number of identifiers held in the sorted base, removed ones included until merged
+     */
+    public int baseSize() {
+        return loaded().base.size();
+    }
+
+    @Override
+    public IdentifierChanges beforeCommit(TransactionData data) throws Exception {
+        IdentifierChanges changes = new IdentifierChanges();
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            // labels of deleted nodes are gone already, not their removed properties
+            if (IDENTIFIER.equals(entry.key()) && entry.previouslyCommitedValue() != null
+                && (data.isDeleted(entry.entity()) || entry.entity().hasLabel(commitLabel))) {
+
+                changes.removed.add(immutableEntry(String.valueOf(entry.previouslyCommitedValue()), entry.entity().getId()));
+            }
+        }
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            if (IDENTIFIER.equals(entry.key()) && !data.isDeleted(entry.entity()) && entry.entity().hasLabel(commitLabel)) {
+                if (entry.previouslyCommitedValue() != null) {
+                    changes.removed.add(immutableEntry(String.valueOf(entry.previouslyCommitedValue()), entry.entity().getId()));
+                }
+                changes.added.add(immutableEntry(String.valueOf(entry.value()), entry.entity().getId()));
+            }
+        }
+        return changes.isEmpty() ? null : changes;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, IdentifierChanges changes) {
+        if (changes == null) {
+            return;
+        }
+        synchronized (this) {
+            State current = state;
+            for (Map.Entry<String, Long> removed : changes.removed) {
+                current.added.remove(removed.getKey(), removed.getValue());
+                current.removed.add(removed);
+            }
+            for (Map.Entry<String, Long> added : changes.added) {
+                current.removed.remove(added);
+                current.added.put(added.getKey(), added.getValue());
+            }
+            current.changes += changes.added.size() + changes.removed.size();
+            if (current.base != null && current.changes > Math.max(compactionThreshold, current.base.size() / 16)) {
+                state = compact(current, current.base);
+            }
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, IdentifierChanges changes) {
+    }
+
+    private State loaded() {
+        State current = state;
+        if (current.base != null) {
+            return current;
+        }
+
+        // scanned without blocking committers: their changes keep landing in the delta meanwhile
+        SortedIdentifiers scanned = scan();
+        synchronized (this) {
+            if (state.base == null) {
+                state = compact(state, scanned);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Removals are matched on identifiers too, node ids of deleted commits being reused by new ones.
+     */
+    private static boolean isRemoved(State current, String identifier, long nodeId) {
+        return !current.removed.isEmpty() && current.removed.contains(immutableEntry(identifier, nodeId));
+    }
+
+    private SortedIdentifiers scan() {
+        List<Map.Entry<byte[], Long>> identifiers = new ArrayList<>();
+        int bytes = 0;
+        try (Transaction tx = graphDB.beginTx();
+             ResourceIterator<Node> commits = at(graphDB).getAllNodesWithLabel(commitLabel).iterator()) {
+
+            while (commits.hasNext()) {
+                Node commit = commits.next();
+                byte[] key = String.valueOf(commit.getProperty(IDENTIFIER)).getBytes(SortedIdentifiers.UTF_8);
+                identifiers.add(immutableEntry(key, commit.getId()));
+                bytes += key.length;
+            }
+            tx.success();
+        }
+        Collections.sort(identifiers, KEY_ORDER);
+
+        SortedIdentifiers.Builder result = new SortedIdentifiers.Builder(identifiers.size(), bytes);
+        for (Map.Entry<byte[], Long> identifier : identifiers) {
+            result.add(identifier.getKey(), identifier.getValue());
+        }
+        return result.build();
+    }
+
+    /**
+     * Merges the delta of the provided state into the provided base, minus removed commits.
+     */
+    private static State compact(State current, SortedIdentifiers base) {
+        List<Map.Entry<byte[], Long>> added = new ArrayList<>(current.added.size());
+        for (Map.Entry<String, Long> entry : current.added.entrySet()) {
+            added.add(immutableEntry(entry.getKey().getBytes(SortedIdentifiers.UTF_8), entry.getValue()));
+        }
+        Collections.sort(added, KEY_ORDER);
+
+        SortedIdentifiers.Builder result = new SortedIdentifiers.Builder(base.size() + added.size(), 0);
+        int next = 0;
+        for (int i = 0; i < base.size(); i++) {
+            if (isRemoved(current, base.identifier(i), base.nodeId(i))) {
+                continue;
+            }
+            byte[] key = base.key(i);
+            while (next < added.size() && KEY_ORDER.compare(added.get(next), immutableEntry(key, 0L)) < 0) {
+                result.add(added.get(next).getKey(), added.get(next++).getValue());
+            }
+            result.add(key, base.nodeId(i));
+        }
+        while (next < added.size()) {
+            result.add(added.get(next).getKey(), added.get(next++).getValue());
+        }
+        return new State(result.build());
+    }
+
+    /**
+     * Sorted base, and what changed since it was built. Only the delta collections are mutated.
+     */
+    private static final class State {
+
+        private final SortedIdentifiers base;
+        private final ConcurrentSkipListMap<String, Long> added = new ConcurrentSkipListMap<>();
+        private final Set<Map.Entry<String, Long>> removed = Collections.newSetFromMap(new ConcurrentHashMap<Map.Entry<String, Long>, Boolean>());
+        // guarded by the index monitor, skip list sizes being linear
+        private int changes;
+
+        private State(SortedIdentifiers base) {
+            this.base = base;
+        }
+    }
+
+    /**
+     * Identifier changes of a transaction, read before it is committed.
+     */
+    static final class IdentifierChanges {
+
+        private final List<Map.Entry<String, Long>> added = new ArrayList<>();
+        private final List<Map.Entry<String, Long>> removed = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+}
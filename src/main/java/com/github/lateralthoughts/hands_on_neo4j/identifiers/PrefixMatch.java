@@ -0,0 +1,58 @@
+package com.github.lateralthoughts.hands_on_neo4j.identifiers;
+
+import com.google.common.collect.ImmutableList;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Outcome of an abbreviated identifier lookup: no commit, a single one, or several candidates.
+ */
+public final class PrefixMatch {
+
+    private static final PrefixMatch NONE = new PrefixMatch(ImmutableList.<String>of(), -1);
+
+    private final ImmutableList<String> candidates;
+    private final long nodeId;
+
+    private PrefixMatch(ImmutableList<String> candidates, long nodeId) {
+        this.candidates = candidates;
+        this.nodeId = nodeId;
+    }
+
+    static PrefixMatch none() {
+        return NONE;
+    }
+
+    static PrefixMatch unique(String identifier, long nodeId) {
+        return new PrefixMatch(ImmutableList.of(identifier), nodeId);
+    }
+
+    static PrefixMatch ambiguous(ImmutableList<String> candidates) {
+        return new PrefixMatch(candidates, -1);
+    }
+
+    public boolean isFound() {
+        return candidates.size() == 1;
+    }
+
+    public boolean isAmbiguous() {
+        return candidates.size() > 1;
+    }
+
+    public String getIdentifier() {
+        checkState(isFound(), "No single commit matched");
+        return candidates.get(0);
+    }
+
+    public long getNodeId() {
+        checkState(isFound(), "No single commit matched");
+        return nodeId;
+    }
+
+    /**
+     * @return matching identifiers, at most {@link CommitPrefixIndex#MAX_CANDIDATES} of them
+     */
+    public ImmutableList<String> getCandidates() {
+        return candidates;
+    }
+}
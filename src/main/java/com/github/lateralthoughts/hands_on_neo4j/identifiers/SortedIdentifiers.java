@@ -0,0 +1,147 @@
+package com.github.lateralthoughts.hands_on_neo4j.identifiers;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Immutable identifiers sorted in byte order, each with its node id.
+ *
+ * Identifiers are concatenated as UTF-8 in a single array, so that a million SHA-1 identifiers
+ * take about 52MB instead of the 170MB of a map of strings. Prefixes are found by binary search.
+ */
+final class SortedIdentifiers {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final SortedIdentifiers EMPTY = new Builder(0, 0).build();
+
+    private final byte[] keys;
+    private final int[] offsets;
+    private final long[] nodeIds;
+    private final int size;
+
+    private SortedIdentifiers(byte[] keys, int[] offsets, long[] nodeIds, int size) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.nodeIds = nodeIds;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long nodeId(int index) {
+        return nodeIds[index];
+    }
+
+    String identifier(int index) {
+        return new String(keys, offsets[index], offsets[index + 1] - offsets[index], UTF_8);
+    }
+
+    byte[] key(int index) {
+        return Arrays.copyOfRange(keys, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * @return the index of the first identifier not lower than the provided key
+     */
+    int lowerBound(byte[] key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    boolean isKey(int index, byte[] key) {
+        return compare(index, key) == 0;
+    }
+
+    boolean startsWith(int index, byte[] prefix) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (keys[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int compare(int index, byte[] key) {
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int result = (keys[start + i] & 0xFF) - (key[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Appends identifiers, which have to be provided in byte order.
+     */
+    static final class Builder {
+
+        private byte[] keys;
+        private int[] offsets;
+        private long[] nodeIds;
+        private int size;
+        private int length;
+
+        Builder(int expectedIdentifiers, int expectedBytes) {
+            keys = new byte[Math.max(16, expectedBytes)];
+            offsets = new int[Math.max(16, expectedIdentifiers + 1)];
+            nodeIds = new long[Math.max(16, expectedIdentifiers)];
+        }
+
+        Builder add(byte[] key, long nodeId) {
+            checkArgument(size == 0 || compareToLast(key) >= 0, "Identifiers should be added in order");
+            if (size + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                nodeIds = Arrays.copyOf(nodeIds, nodeIds.length * 2);
+            }
+            while (length + key.length > keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            System.arraycopy(key, 0, keys, length, key.length);
+            length += key.length;
+            nodeIds[size++] = nodeId;
+            offsets[size] = length;
+            return this;
+        }
+
+        SortedIdentifiers build() {
+            return new SortedIdentifiers(
+                Arrays.copyOf(keys, length),
+                Arrays.copyOf(offsets, size + 1),
+                Arrays.copyOf(nodeIds, size),
+                size
+            );
+        }
+
+        private int compareToLast(byte[] key) {
+            int start = offsets[size - 1];
+            int lastLength = length - start;
+            for (int i = 0; i < Math.min(lastLength, key.length); i++) {
+                int result = (key[i] & 0xFF) - (keys[start + i] & 0xFF);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return key.length - lastLength;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.IndexFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.PropertyFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.UniqueIdentifierFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
+import com.google.common.collect.ImmutableMap;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndex;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider;
+import org.neo4j.unsafe.batchinsert.BatchRelationship;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations.GENERATION;
+import static com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations.ROOT_GENERATION;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.neo4j.index.impl.lucene.LuceneIndexImplementation.EXACT_CONFIG;
+
+/**
+ * Offline import session, writing straight to the store files of a stopped database.
+ *
+ * Nodes, relationships and legacy index entries are laid out exactly like
+ * {@link com.github.lateralthoughts.hands_on_neo4j.frontend.BIRGGIT} does through
+ * its unique factories, so that the resulting store can be opened and used by BIRGGIT.
+ * Unique identifiers are resolved against in-memory maps instead of index lookups,
+ * which is why sessions are only opened on new stores.
+ *
+ * Not thread-safe. The store is only readable once the session is closed.
+ */
+public final class BulkImport implements Closeable {
+
+    private final BatchInserter inserter;
+    private final BatchInserterIndexProvider indexProvider;
+    private final LabelFinder labels;
+    private final PropertyFinder properties;
+    private final RelationTypeFinder relationshipTypes;
+    private final UniqueIdentifierFinder uniqueIdentifiers;
+    private final IndexFinder indices;
+
+    private final Map<String, BatchInserterIndex> nodeIndices = new HashMap<>();
+    private final Map<String, BatchInserterIndex> relationshipIndices = new HashMap<>();
+    private final Map<String, Map<Object, Long>> uniqueNodes = new HashMap<>();
+    private final Map<String, Map<Object, Long>> uniqueRelationships = new HashMap<>();
+    private final Map<Long, Integer> generations = new HashMap<>();
+    private final RelationshipType parentCommitType;
+    private long importedCommits;
+    private boolean closed;
+
+    BulkImport(BatchInserter inserter,
+               BatchInserterIndexProvider indexProvider,
+               LabelFinder labels,
+               PropertyFinder properties,
+               RelationTypeFinder relationshipTypes,
+               UniqueIdentifierFinder uniqueIdentifiers,
+               IndexFinder indices) {
+
+        this.inserter = inserter;
+        this.indexProvider = indexProvider;
+        this.labels = labels;
+        this.properties = properties;
+        this.relationshipTypes = relationshipTypes;
+        this.uniqueIdentifiers = uniqueIdentifiers;
+        this.indices = indices;
+        this.parentCommitType = relationshipTypes.findRelationshipType(ParentCommit.class);
+    }
+
+    /**
+     * Creates a {@link Project} node, unless it has already been imported.
+     *
+     * @return the node id
+     */
+    public long createProject(Project project) {
+        checkNotNull(project);
+        return createUniqueNode(project);
+    }
+
+    /**
+     * Creates a {@link Commit} node, unless it has already been imported.
+     *
+     * @return the node id
+     */
+    public long commit(Commit commit) {
+        checkNotNull(commit);
+        return createUniqueNode(commit);
+    }
+
+    /**
+     * Creates a {@link ParentCommit} relationship, along with its missing commit nodes,
+     * unless both commits are already linked.
+     *
+     * @return the relationship id
+     */
+    public long createParentCommit(ParentCommit parentCommit) {
+        checkNotNull(parentCommit);
+        checkState(!closed, "Import is already closed");
+
+        long parent = createUniqueNode(relationshipTypes.findStart(parentCommit));
+        long child = createUniqueNode(relationshipTypes.findEnd(parentCommit));
+        for (BatchRelationship existing : inserter.getRelationships(child)) {
+            if (existing.getStartNode() == parent && existing.getEndNode() == child && isParentCommit(existing)) {
+                return existing.getId();
+            }
+        }
+
+        long relationship = inserter.createRelationship(
+            parent,
+            child,
+            relationshipTypes.findRelationshipType(parentCommit),
+            ImmutableMap.<String, Object>of()
+        );
+        refreshGenerations(child);
+        return relationship;
+    }
+
+    /**
+     * Creates a {@link Branch} relationship, along with its missing project and commit nodes,
+     * and indexes it by name.
+     * Batch insertion cannot delete relationships, hence each branch should be
+     * created once, pointing to its final commit.
+     *
+     * @return the relationship id
+     * @throws IllegalArgumentException if a branch with the same name has already been imported
+     */
+    public long createBranch(Branch branch) {
+        checkNotNull(branch);
+        checkState(!closed, "Import is already closed");
+
+        Entry<String, Object> identity = uniqueIdentifiers.findSingleKeyValue(branch);
+        String indexName = indices.findName(branch);
+        Map<Object, Long> existing = uniqueEntries(uniqueRelationships, indexName);
+        checkArgument(!existing.containsKey(identity.getValue()), "Branch %s has already been imported", branch.getName());
+
+        long relationship = inserter.createRelationship(
+            createUniqueNode(branch.getProject()),
+            createUniqueNode(branch.getCommit()),
+            relationshipTypes.findRelationshipType(branch),
+            propertiesOf(branch)
+        );
+        relationshipIndex(indexName).add(relationship, ImmutableMap.of(identity.getKey(), identity.getValue()));
+        existing.put(identity.getValue(), relationship);
+        return relationship;
+    }
+
+    public long getImportedCommits() {
+        return importedCommits;
+    }
+
+    /**
+     * Flushes indices and shuts the batch inserter down.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            indexProvider.shutdown();
+        } finally {
+            inserter.shutdown();
+        }
+    }
+
+    private long createUniqueNode(Domain entity) {
+        checkState(!closed, "Import is already closed");
+
+        Entry<String, Object> identity = uniqueIdentifiers.findSingleKeyValue(entity);
+        String indexName = indices.findName(entity);
+        Map<Object, Long> existing = uniqueEntries(uniqueNodes, indexName);
+        Long id = existing.get(identity.getValue());
+        if (id != null) {
+            return id;
+        }
+
+        Map<String, Object> nodeProperties = propertiesOf(entity);
+        nodeProperties.put(identity.getKey(), identity.getValue());
+        if (entity instanceof Commit) {
+            nodeProperties.put(GENERATION, ROOT_GENERATION);
+        }
+        long node = inserter.createNode(nodeProperties, labels.findAllLabels(entity.getClass()));
+        nodeIndex(indexName).add(node, ImmutableMap.of(identity.getKey(), identity.getValue()));
+        existing.put(identity.getValue(), node);
+        if (entity instanceof Commit) {
+            generations.put(node, ROOT_GENERATION);
+            importedCommits++;
+        }
+        return node;
+    }
+
+    /**
+     * Mirrors {@link com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations#onParentAdded}.
+     */
+    private void refreshGenerations(long commit) {
+        Deque<Long> updated = new ArrayDeque<>();
+        refreshGeneration(commit, updated);
+        while (!updated.isEmpty()) {
+            long current = updated.poll();
+            for (BatchRelationship relationship : inserter.getRelationships(current)) {
+                if (relationship.getStartNode() == current && isParentCommit(relationship)) {
+                    refreshGeneration(relationship.getEndNode(), updated);
+                }
+            }
+        }
+    }
+
+    private void refreshGeneration(long commit, Deque<Long> updated) {
+        int generation = ROOT_GENERATION;
+        for (BatchRelationship relationship : inserter.getRelationships(commit)) {
+            if (relationship.getEndNode() == commit && isParentCommit(relationship)) {
+                generation = Math.max(generation, generations.get(relationship.getStartNode()) + 1);
+            }
+        }
+        if (generation != generations.get(commit)) {
+            inserter.setNodeProperty(commit, GENERATION, generation);
+            generations.put(commit, generation);
+            updated.add(commit);
+        }
+    }
+
+    private boolean isParentCommit(BatchRelationship relationship) {
+        return relationship.getType().name().equals(parentCommitType.name());
+    }
+
+    private Map<String, Object> propertiesOf(Domain entity) {
+        Map<String, Object> result = new HashMap<>();
+        for (Entry<String, Object> property : properties.findAll(entity)) {
+            result.put(property.getKey(), property.getValue());
+        }
+        return result;
+    }
+
+    private BatchInserterIndex nodeIndex(String name) {
+        BatchInserterIndex index = nodeIndices.get(name);
+        if (index == null) {
+            index = indexProvider.nodeIndex(name, EXACT_CONFIG);
+            nodeIndices.put(name, index);
+        }
+        return index;
+    }
+
+    private BatchInserterIndex relationshipIndex(String name) {
+        BatchInserterIndex index = relationshipIndices.get(name);
+        if (index == null) {
+            index = indexProvider.relationshipIndex(name, EXACT_CONFIG);
+            relationshipIndices.put(name, index);
+        }
+        return index;
+    }
+
+    private static Map<Object, Long> uniqueEntries(Map<String, Map<Object, Long>> entries, String indexName) {
+        Map<Object, Long> result = entries.get(indexName);
+        if (result == null) {
+            result = new HashMap<>();
+            entries.put(indexName, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.IndexFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.PropertyFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.UniqueIdentifierFinder;
+import com.google.common.base.Stopwatch;
+import org.neo4j.index.lucene.unsafe.batchinsert.LuceneBatchInserterIndexProvider;
+import org.neo4j.kernel.impl.nioneo.store.NeoStore;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Seeds new BIRGGIT stores offline, through Neo4J batch insertion.
+ * The target store must not be opened by any database while importing.
+ */
+@Component
+public class BulkImporter {
+
+    private final LabelFinder labels;
+    private final PropertyFinder properties;
+    private final RelationTypeFinder relationshipTypes;
+    private final UniqueIdentifierFinder uniqueIdentifiers;
+    private final IndexFinder indices;
+
+    @Autowired
+    public BulkImporter(LabelFinder labels,
+                        PropertyFinder properties,
+                        RelationTypeFinder relationshipTypes,
+                        UniqueIdentifierFinder uniqueIdentifiers,
+                        IndexFinder indices) {
+
+        this.labels = labels;
+        this.properties = properties;
+        this.relationshipTypes = relationshipTypes;
+        this.uniqueIdentifiers = uniqueIdentifiers;
+        this.indices = indices;
+    }
+
+    /**
+     * Opens an import session on the provided store directory.
+     * The session has to be closed for the store to be usable.
+     *
+     * Sessions only know about the nodes and relationships they import, so they cannot
+     * resume an existing store without duplicating its commits and branches.
+     *
+     * @throws IllegalArgumentException if the directory already holds a store
+     */
+    public BulkImport open(String storeDir) {
+        checkArgument(storeDir != null && !storeDir.isEmpty());
+        checkArgument(
+            !new File(storeDir, NeoStore.DEFAULT_NAME).exists(),
+            "%s already holds a store, bulk imports only seed new ones",
+            storeDir
+        );
+
+        BatchInserter inserter = BatchInserters.inserter(storeDir);
+        return new BulkImport(
+            inserter,
+            new LuceneBatchInserterIndexProvider(inserter),
+            labels,
+            properties,
+            relationshipTypes,
+            uniqueIdentifiers,
+            indices
+        );
+    }
+
+    /**
+     * Offline counterpart of {@link com.github.lateralthoughts.hands_on_neo4j.frontend.BIRGGIT#init(Branch, Commit...)}:
+     * chains the provided commits on top of the branch commit, then points the branch to the last one.
+     */
+    public ImportReport importHistory(String storeDir, Branch branch, Iterable<Commit> commits) {
+        checkNotNull(branch);
+        checkNotNull(commits);
+
+        Stopwatch stopwatch = new Stopwatch().start();
+        try (BulkImport bulkImport = open(storeDir)) {
+            Commit parent = branch.getCommit();
+            bulkImport.commit(parent);
+            for (Commit commit : commits) {
+                bulkImport.createParentCommit(new ParentCommit(parent, commit));
+                parent = commit;
+            }
+            bulkImport.createBranch(new Branch(branch, parent));
+
+            long importedCommits = bulkImport.getImportedCommits();
+            bulkImport.close();
+            return new ImportReport(importedCommits, stopwatch.elapsed(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.frontend.BIRGGIT;
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Mirrors a local git repository into BIRGGIT.
+ *
+ * Revisions are streamed out of <code>git rev-list</code>, parents first, and written
+ * in transactions of at most chunkSize commits: only one chunk is held in memory at a time.
+ * Commits and parent edges are created through their unique factories, so importing
+ * the same repository again only adds what is new and moves branches to their current tip.
+ */
+@Component
+public class GitHistoryImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * Placeholder message of parent commits outside of the listed revisions (e.g. shallow clones).
+     */
+    private static final String UNKNOWN_MESSAGE = "";
+
+    private final GraphDatabaseService graphDB;
+    private final BIRGGIT birggit;
+
+    @Autowired
+    public GitHistoryImporter(GraphDatabaseService graphDB, BIRGGIT birggit) {
+        this.graphDB = graphDB;
+        this.birggit = birggit;
+    }
+
+    /**
+     * @see {@link this#importRepository(File, Project, int)}
+     */
+    public ImportReport importRepository(File repository, Project project) throws IOException {
+        return importRepository(repository, project, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Imports every commit reachable from the local branches of the provided repository,
+     * then points each {@link Branch} of the project to the same commit as its git counterpart.
+     *
+     * @throws IOException if git cannot be run or fails
+     */
+    public ImportReport importRepository(File repository, Project project, int chunkSize) throws IOException {
+        checkNotNull(repository);
+        checkNotNull(project);
+        checkArgument(repository.isDirectory(), "%s is not a directory", repository);
+        checkArgument(chunkSize > 0, "Chunk size should be strictly positive");
+
+        Stopwatch stopwatch = new Stopwatch().start();
+        long commits;
+        Process revList = git(repository, "rev-list", "--reverse", "--topo-order", "--parents", "--format=%s", "--branches");
+        try (BufferedReader output = reader(revList)) {
+            commits = importRevisions(new GitRevisionReader(output), chunkSize);
+        } catch (RuntimeException e) {
+            revList.destroy();
+            throw e;
+        }
+        awaitSuccess(revList, "rev-list");
+        importBranches(repository, project);
+        return new ImportReport(commits, stopwatch.elapsed(TimeUnit.NANOSECONDS));
+    }
+
+    private long importRevisions(Iterator<GitRevision> revisions, int chunkSize) {
+        long commits = 0;
+        Iterator<List<GitRevision>> chunks = Iterators.partition(revisions, chunkSize);
+        while (chunks.hasNext()) {
+            List<GitRevision> chunk = chunks.next();
+            try (Transaction tx = graphDB.beginTx()) {
+                for (GitRevision revision : chunk) {
+                    importRevision(revision);
+                }
+                tx.success();
+            }
+            commits += chunk.size();
+        }
+        return commits;
+    }
+
+    private void importRevision(GitRevision revision) {
+        Commit commit = new Commit(revision.getIdentifier(), revision.getSubject());
+        birggit.commit(commit);
+        for (String parent : revision.getParents()) {
+            birggit.createParentCommit(new ParentCommit(new Commit(parent, UNKNOWN_MESSAGE), commit));
+        }
+    }
+
+    private void importBranches(File repository, Project project) throws IOException {
+        Process forEachRef = git(repository, "for-each-ref", "--format=%(objectname) %(refname:short)", "refs/heads/");
+        try (BufferedReader output = reader(forEachRef);
+             Transaction tx = graphDB.beginTx()) {
+
+            String line;
+            while ((line = output.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                importBranch(new Branch(
+                    project,
+                    new Commit(line.substring(0, separator), UNKNOWN_MESSAGE),
+                    line.substring(separator + 1)
+                ));
+            }
+            tx.success();
+        } catch (RuntimeException e) {
+            forEachRef.destroy();
+            throw e;
+        }
+        awaitSuccess(forEachRef, "for-each-ref");
+    }
+
+    private void importBranch(Branch branch) {
+        Relationship existing = birggit.findBranch(branch.getName());
+        if (existing != null) {
+            existing.delete();
+        }
+        birggit.indexBranch(birggit.createBranch(branch));
+    }
+
+    private static Process git(File repository, String... arguments) throws IOException {
+        return new ProcessBuilder(ImmutableList.<String>builder().add("git").add(arguments).build())
+            .directory(repository)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    }
+
+    private static BufferedReader reader(Process process) {
+        return new BufferedReader(new InputStreamReader(process.getInputStream(), Charsets.UTF_8));
+    }
+
+    private static void awaitSuccess(Process process, String command) throws IOException {
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException(format("git %s exited with code %d", command, exitCode));
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException(format("Interrupted while waiting for git %s", command), e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import com.google.common.collect.ImmutableList;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One commit, as listed by <code>git rev-list --parents --format=%s</code>.
+ */
+final class GitRevision {
+
+    private final String identifier;
+    private final ImmutableList<String> parents;
+    private final String subject;
+
+    GitRevision(String identifier, ImmutableList<String> parents, String subject) {
+        this.identifier = checkNotNull(identifier);
+        this.parents = checkNotNull(parents);
+        this.subject = checkNotNull(subject);
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public ImmutableList<String> getParents() {
+        return parents;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+}
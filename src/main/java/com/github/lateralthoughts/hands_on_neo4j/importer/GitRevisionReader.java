@@ -0,0 +1,52 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+
+/**
+ * Lazily parses <code>git rev-list --parents --format=%s</code> output.
+ * Each revision spans two lines: "commit &lt;id&gt; [&lt;parent id&gt;...]" then its subject.
+ * Only the revision being parsed is held in memory.
+ */
+final class GitRevisionReader extends AbstractIterator<GitRevision> {
+
+    private static final String HEADER_PREFIX = "commit ";
+    private static final Splitter SPACE = Splitter.on(' ').omitEmptyStrings();
+
+    private final BufferedReader reader;
+
+    GitRevisionReader(BufferedReader reader) {
+        this.reader = checkNotNull(reader);
+    }
+
+    @Override
+    protected GitRevision computeNext() {
+        try {
+            String header = reader.readLine();
+            if (header == null) {
+                return endOfData();
+            }
+            if (!header.startsWith(HEADER_PREFIX)) {
+                throw new IllegalStateException("Unexpected rev-list header: " + header);
+            }
+            String subject = reader.readLine();
+
+            Iterator<String> identifiers = SPACE.split(header.substring(HEADER_PREFIX.length())).iterator();
+            return new GitRevision(
+                identifiers.next(),
+                ImmutableList.copyOf(identifiers),
+                subject == null ? "" : subject
+            );
+        } catch (IOException e) {
+            throw propagate(e);
+        }
+    }
+}
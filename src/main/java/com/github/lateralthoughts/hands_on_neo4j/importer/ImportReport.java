@@ -0,0 +1,39 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Outcome of an import: how many commits were written and how long it took.
+ */
+public final class ImportReport {
+
+    private final long commits;
+    private final long elapsedNanos;
+
+    public ImportReport(long commits, long elapsedNanos) {
+        this.commits = commits;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getCommitsPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return commits * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return format("%d commits in %d ms (%.0f commits/s)", commits, getElapsed(TimeUnit.MILLISECONDS), getCommitsPerSecond());
+    }
+}
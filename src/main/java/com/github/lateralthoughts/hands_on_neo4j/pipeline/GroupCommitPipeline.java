@@ -0,0 +1,254 @@
+package com.github.lateralthoughts.hands_on_neo4j.pipeline;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.frontend.BIRGGIT;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Opt-in write pipeline coalescing concurrent {@link BIRGGIT} writes into shared transactions.
+ *
+ * Submitted writes are queued and applied by a single writer thread, at most maxBatchSize
+ * writes per transaction, waiting at most maxDelay for a batch to fill up. Each write runs
+ * within the shared transaction, so that a batch pays for a single commit and log force.
+ * The future of a write completes once its transaction is committed.
+ * A batch that fails is rolled back and its writes are applied again one transaction each,
+ * hence a failing write only fails its own future.
+ *
+ * The writer thread is never interrupted: it is woken up by a stop marker, so that every
+ * write it has dequeued is applied and every other one fails.
+ */
+@Component
+public class GroupCommitPipeline {
+
+    private final GraphDatabaseService graphDB;
+    private final BIRGGIT birggit;
+    private static final PendingWrite<Void> STOP = new PendingWrite<>(null);
+
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private volatile ExecutorService writer;
+    private volatile boolean stopping;
+
+    @Autowired
+    public GroupCommitPipeline(GraphDatabaseService graphDB, BIRGGIT birggit) {
+        this.graphDB = graphDB;
+        this.birggit = birggit;
+    }
+
+    public synchronized void start(final int maxBatchSize, long maxDelay, TimeUnit unit) {
+        checkArgument(maxBatchSize > 0, "Batch size should be strictly positive");
+        checkArgument(maxDelay >= 0, "Delay should be positive");
+        checkState(writer == null, "Pipeline already started");
+
+        final long maxDelayNanos = unit.toNanos(maxDelay);
+        stopping = false;
+        writer = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("birggit-group-commit-%d").setDaemon(true).build()
+        );
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!stopping && !Thread.currentThread().isInterrupted()) {
+                    apply(nextBatch(maxBatchSize, maxDelayNanos));
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops the pipeline once the batch in progress is applied. Writes still queued fail.
+     */
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        stopping = true;
+        queue.add(STOP);
+        writer.shutdown();
+        writer.awaitTermination(1, TimeUnit.MINUTES);
+        writer = null;
+
+        List<PendingWrite<?>> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        for (PendingWrite<?> write : abandoned) {
+            abandon(write);
+        }
+    }
+
+    public boolean isRunning() {
+        return writer != null && !stopping;
+    }
+
+    /**
+     * Queues a write, applied to BIRGGIT within a shared transaction.
+     */
+    public <T> ListenableFuture<T> submit(Function<BIRGGIT, T> write) {
+        checkNotNull(write);
+        checkState(isRunning(), "Pipeline is not started");
+
+        PendingWrite<T> pending = new PendingWrite<>(write);
+        queue.add(pending);
+        if (stopping && queue.remove(pending)) {
+            // queued after stop() drained the queue
+            abandon(pending);
+        }
+        return pending.future;
+    }
+
+    /**
+     * @see {@link BIRGGIT#commit(Commit, Branch)}
+     */
+    public ListenableFuture<Relationship> commit(final Commit commit, final Branch branch) {
+        return submit(new Function<BIRGGIT, Relationship>() {
+            @Override
+            public Relationship apply(BIRGGIT input) {
+                return input.commit(commit, branch);
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#createBranch(Branch)}
+     */
+    public ListenableFuture<Relationship> createBranch(final Branch branch) {
+        return submit(new Function<BIRGGIT, Relationship>() {
+            @Override
+            public Relationship apply(BIRGGIT input) {
+                return input.createBranch(branch);
+            }
+        });
+    }
+
+    /**
+     * @see {@link BIRGGIT#indexBranch(Relationship)}
+     */
+    public ListenableFuture<Relationship> indexBranch(final Relationship branch) {
+        return submit(new Function<BIRGGIT, Relationship>() {
+            @Override
+            public Relationship apply(BIRGGIT input) {
+                input.indexBranch(branch);
+                return branch;
+            }
+        });
+    }
+
+    /**
+     * @return the writes dequeued until the batch is full, maxDelayNanos elapsed or the stop marker is met
+     */
+    private List<PendingWrite<?>> nextBatch(int maxBatchSize, long maxDelayNanos) {
+        List<PendingWrite<?>> batch = new ArrayList<>();
+        try {
+            PendingWrite<?> first = queue.take();
+            if (first == STOP) {
+                return batch;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                if (batch.remove(STOP)) {
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() == maxBatchSize || remaining <= 0) {
+                    break;
+                }
+                PendingWrite<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null || next == STOP) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            // dequeued writes are applied all the same
+            Thread.currentThread().interrupt();
+        }
+        return batch;
+    }
+
+    private static void abandon(PendingWrite<?> write) {
+        if (write != STOP) {
+            write.future.setException(new IllegalStateException("Pipeline stopped"));
+        }
+    }
+
+    private void apply(List<PendingWrite<?>> batch) {
+        if (batch.size() > 1 && applyTogether(batch)) {
+            return;
+        }
+        for (PendingWrite<?> write : batch) {
+            applyAlone(write);
+        }
+    }
+
+    private boolean applyTogether(List<PendingWrite<?>> batch) {
+        try {
+            try (Transaction tx = graphDB.beginTx()) {
+                for (PendingWrite<?> write : batch) {
+                    write.apply(birggit);
+                }
+                tx.success();
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        for (PendingWrite<?> write : batch) {
+            write.complete();
+        }
+        return true;
+    }
+
+    private void applyAlone(PendingWrite<?> write) {
+        try {
+            try (Transaction tx = graphDB.beginTx()) {
+                write.apply(birggit);
+                tx.success();
+            }
+        } catch (RuntimeException e) {
+            write.future.setException(e);
+            return;
+        }
+        write.complete();
+    }
+
+    private static final class PendingWrite<T> {
+
+        private final Function<BIRGGIT, T> write;
+        private final SettableFuture<T> future = SettableFuture.create();
+        private T result;
+
+        private PendingWrite(Function<BIRGGIT, T> write) {
+            this.write = write;
+        }
+
+        private void apply(BIRGGIT birggit) {
+            result = write.apply(birggit);
+        }
+
+        private void complete() {
+            future.set(result);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.lateralthoughts.hands_on_neo4j.branches;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+
+public class BranchTipsTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("tips");
+
+    @Autowired
+    private BranchTips branchTips;
+
+    @Before
+    public void prepare() {
+        birggit.init(new Branch(PROJECT, new Commit("c0", "c0")), new Commit("c1", "c1"));
+    }
+
+    @Test
+    public void should_track_committed_branch_tips() {
+        try (Transaction tx = graphDB.beginTx()) {
+            BranchTip tip = branchTips.tipOf(Branch.DEFAULT_BRANCH_NAME).get();
+            Relationship branch = birggit.findBranch(Branch.DEFAULT_BRANCH_NAME);
+
+            assertThat(tip.getRelationshipId()).isEqualTo(branch.getId());
+            assertThat(tip.getCommitId()).isEqualTo(birggit.findOneCommit("c1").getId());
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_follow_branches_moved_by_merges() {
+        Relationship merged = birggit.merge(
+            new Branch(PROJECT, new Commit("c1", "c1")),
+            new Branch(PROJECT, new Commit("c0", "c0"), "side")
+        );
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findBranch(Branch.DEFAULT_BRANCH_NAME)).isEqualTo(merged);
+            assertThat(branchTips.tipOf(Branch.DEFAULT_BRANCH_NAME).get().getCommitId())
+                .isEqualTo(merged.getEndNode().getId());
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_ignore_rolled_back_branch_changes() {
+        long tipBefore = branchTips.tipOf(Branch.DEFAULT_BRANCH_NAME).get().getCommitId();
+
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.commit(new Commit("c2", "c2"), new Branch(PROJECT, new Commit("c1", "c1")));
+            birggit.createBranch(new Branch(PROJECT, new Commit("c2", "c2"), "discarded"));
+            tx.failure();
+        }
+
+        assertThat(branchTips.tipOf(Branch.DEFAULT_BRANCH_NAME).get().getCommitId()).isEqualTo(tipBefore);
+        assertThat(branchTips.tipOf("discarded").isPresent()).isFalse();
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findBranch(Branch.DEFAULT_BRANCH_NAME).getEndNode().getId()).isEqualTo(tipBefore);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_serve_tips_again_once_branch_writes_are_rolled_back() {
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.createBranch(new Branch(PROJECT, new Commit("c1", "c1"), "discarded"));
+            tx.failure();
+        }
+
+        try (Transaction tx = graphDB.beginTx()) {
+            Relationship branch = branchTips.find(Branch.DEFAULT_BRANCH_NAME);
+
+            assertThat(branch).isNotNull();
+            assertThat(branch.getEndNode().getId()).isEqualTo(birggit.findOneCommit("c1").getId());
+            tx.success();
+        }
+    }
+}
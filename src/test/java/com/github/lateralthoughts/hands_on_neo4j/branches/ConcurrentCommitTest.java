@@ -0,0 +1,138 @@
+package com.github.lateralthoughts.hands_on_neo4j.branches;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static java.lang.String.format;
+
+public class ConcurrentCommitTest extends GraphTestSuite {
+
+    private static final int WRITERS = 4;
+    private static final int COMMITS_PER_WRITER = 25;
+
+    @Before
+    public void prepare() {
+        for (int i = 0; i < WRITERS; i++) {
+            birggit.init(branch(i, "root-" + i), new Commit("first-" + i, "first"));
+        }
+    }
+
+    @Test
+    public void should_not_lose_commits_of_concurrent_writers_on_the_same_branch() throws Exception {
+        run(new WriterFactory() {
+            @Override
+            public Branch branchOf(int writer) {
+                return branch(0, "first-0");
+            }
+        });
+
+        assertThat(birggit.log(name(0), WRITERS * COMMITS_PER_WRITER + 10)).hasSize(WRITERS * COMMITS_PER_WRITER + 2);
+        assertSingleBranchRelationship(0);
+    }
+
+    @Test
+    public void should_let_writers_on_different_branches_proceed() throws Exception {
+        run(new WriterFactory() {
+            @Override
+            public Branch branchOf(int writer) {
+                return branch(writer, "first-" + writer);
+            }
+        });
+
+        for (int i = 0; i < WRITERS; i++) {
+            assertThat(birggit.log(name(i), COMMITS_PER_WRITER + 10)).hasSize(COMMITS_PER_WRITER + 2);
+            assertSingleBranchRelationship(i);
+        }
+    }
+
+    @Test
+    public void should_let_writers_on_different_branches_of_the_same_project_proceed() throws Exception {
+        for (int i = 0; i < WRITERS; i++) {
+            birggit.indexBranch(birggit.createBranch(sharedBranch(i)));
+        }
+
+        run(new WriterFactory() {
+            @Override
+            public Branch branchOf(int writer) {
+                return sharedBranch(writer);
+            }
+        });
+
+        for (int i = 0; i < WRITERS; i++) {
+            assertThat(birggit.log(sharedBranch(i).getName(), COMMITS_PER_WRITER + 10)).hasSize(COMMITS_PER_WRITER + 2);
+        }
+        assertBranchRelationships(0, WRITERS + 1);
+    }
+
+    private void run(final WriterFactory writers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                final int writer = i;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int j = 0; j < COMMITS_PER_WRITER; j++) {
+                            String identifier = format("w%d-c%d", writer, j);
+                            birggit.commit(new Commit(identifier, identifier), writers.branchOf(writer));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertSingleBranchRelationship(int branch) {
+        assertBranchRelationships(branch, 1);
+    }
+
+    private void assertBranchRelationships(int branch, int expected) {
+        try (Transaction tx = graphDB.beginTx()) {
+            Node project = birggit.findBranch(name(branch)).getStartNode();
+            int relationships = 0;
+            for (Relationship ignored : project.getRelationships()) {
+                relationships++;
+            }
+            assertThat(relationships).isEqualTo(expected);
+            tx.success();
+        }
+    }
+
+    private static Branch branch(int index, String tip) {
+        return new Branch(new Project("project-" + index), new Commit(tip, tip), name(index));
+    }
+
+    private static Branch sharedBranch(int writer) {
+        return new Branch(new Project("project-0"), new Commit("first-0", "first-0"), "shared-" + writer);
+    }
+
+    private static String name(int index) {
+        return "branch-" + index;
+    }
+
+    private interface WriterFactory {
+        Branch branchOf(int writer);
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.lateralthoughts.hands_on_neo4j.commitgraph;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations;
+import com.github.lateralthoughts.hands_on_neo4j.history.LogOrder;
+import com.google.common.base.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collection;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.google.common.collect.Collections2.transform;
+
+public class CommitGraphIndexTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("mirror");
+
+    @Autowired
+    private CommitGraphIndex index;
+
+    @Before
+    public void prepare() {
+        Commit root = new Commit("c0", "c0");
+        Commit first = new Commit("c1", "c1");
+        birggit.init(new Branch(PROJECT, root), first, new Commit("c2", "c2"), new Commit("c3", "c3"));
+        birggit.init(new Branch(PROJECT, first, "side"), new Commit("s1", "s1"), new Commit("s2", "s2"));
+    }
+
+    @Test
+    public void should_walk_history_without_the_store() {
+        Relationship merged = birggit.merge(
+            new Branch(PROJECT, new Commit("c3", "c3")),
+            new Branch(PROJECT, new Commit("s2", "s2"), "side")
+        );
+
+        try (Transaction tx = graphDB.beginTx()) {
+            long mergeCommit = merged.getEndNode().getId();
+
+            assertThat(index.size()).isEqualTo(7);
+            assertThat(index.log(mergeCommit, 100)).hasSize(7).startsWith(mergeCommit).endsWith(id("c0"));
+            assertThat(index.log(id("s2"), 2)).containsExactly(id("s2"), id("s1"));
+            assertThat(index.range(id("c3"), id("s2"), 100)).containsExactly(id("s2"), id("s1"));
+            assertThat(index.range(id("s2"), mergeCommit, 100)).containsExactly(mergeCommit, id("c3"), id("c2"));
+            assertThat(index.findMergeBase(id("c3"), id("s2"))).isEqualTo(id("c1"));
+            assertThat(index.findMergeBase(id("c1"), id("s2"))).isEqualTo(id("c1"));
+            assertThat(index.isAncestor(id("s1"), mergeCommit)).isTrue();
+            assertThat(index.isAncestor(id("s1"), id("c3"))).isFalse();
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_follow_appended_and_rewritten_history() {
+        assertThat(index.size()).isEqualTo(6);
+
+        birggit.init(new Branch(PROJECT, new Commit("s2", "s2"), "late"), new Commit("l1", "l1"));
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(index.size()).isEqualTo(7);
+            assertThat(index.findMergeBase(id("l1"), id("c3"))).isEqualTo(id("c1"));
+            tx.success();
+        }
+
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.createParentCommit(new ParentCommit(new Commit("c3", "c3"), new Commit("s1", "s1")));
+            tx.success();
+        }
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(index.isAncestor(id("c3"), id("l1"))).isTrue();
+            assertThat(index.findMergeBase(id("l1"), id("c3"))).isEqualTo(id("c3"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_derive_generations_commits_lack() {
+        try (Transaction tx = graphDB.beginTx()) {
+            for (String identifier : new String[]{"c1", "s1", "s2"}) {
+                birggit.findOneCommit(identifier).removeProperty(CommitGenerations.GENERATION);
+            }
+            tx.success();
+        }
+        index.rebuild();
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(index.isAncestor(id("s1"), id("s2"))).isTrue();
+            assertThat(index.isAncestor(id("c0"), id("s2"))).isTrue();
+            assertThat(index.isAncestor(id("s2"), id("s1"))).isFalse();
+            assertThat(index.log(id("s2"), 100)).containsExactly(id("s2"), id("s1"), id("c1"), id("c0"));
+            assertThat(index.findMergeBase(id("c3"), id("s2"))).isEqualTo(id("c1"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_serve_history_reads_outside_transactions() {
+        Collection<Node> logs = birggit.log("side", 3);
+        Collection<Node> range = birggit.logRange(Branch.DEFAULT_BRANCH_NAME, "side", LogOrder.TOPOLOGICAL, 100);
+        Node ancestor = birggit.findCommonAncestor(Branch.DEFAULT_BRANCH_NAME, "side");
+
+        assertThat(birggit.contains("side", "c1")).isTrue();
+        assertThat(birggit.contains("side", "c2")).isFalse();
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(extractedCommitHashes(logs)).containsExactly("s2", "s1", "c1");
+            assertThat(extractedCommitHashes(range)).containsExactly("s2", "s1");
+            assertThat(ancestor.getId()).isEqualTo(id("c1"));
+            tx.success();
+        }
+    }
+
+    private long id(String identifier) {
+        return birggit.findOneCommit(identifier).getId();
+    }
+
+    private Collection<String> extractedCommitHashes(Collection<Node> logs) {
+        return transform(logs, new Function<Node, String>() {
+            @Override
+            public String apply(Node input) {
+                return input.getProperty("identifier").toString();
+            }
+        });
+    }
+}
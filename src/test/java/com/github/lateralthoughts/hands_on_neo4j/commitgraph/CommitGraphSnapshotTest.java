@@ -0,0 +1,182 @@
+package com.github.lateralthoughts.hands_on_neo4j.commitgraph;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.RelationTypeFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.github.lateralthoughts.hands_on_neo4j.importer.BulkImporter;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations.GENERATION;
+import static org.neo4j.tooling.GlobalGraphOperations.at;
+
+public class CommitGraphSnapshotTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("snapshots");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private BulkImporter bulkImporter;
+    @Autowired
+    private LabelFinder labels;
+    @Autowired
+    private RelationTypeFinder relationshipTypes;
+
+    private String storeDir;
+    private GraphDatabaseService storedDB;
+    private CommitGraphIndex storedIndex;
+
+    @Before
+    public void prepare() throws IOException {
+        storeDir = folder.newFolder("store").getAbsolutePath();
+        bulkImporter.importHistory(
+            storeDir,
+            new Branch(PROJECT, new Commit("c0", "Initial commit")),
+            ImmutableList.of(new Commit("c1", "First"), new Commit("c2", "Second"), new Commit("c3", "Third"))
+        );
+    }
+
+    @After
+    public void shutdown() {
+        close();
+    }
+
+    @Test
+    public void should_restore_mirror_and_append_commits_missing_from_snapshot() throws IOException {
+        open();
+        assertThat(storedIndex.findCommit("c2")).isEqualTo(nodeId("c2"));
+        close();
+
+        File snapshotFile = new File(storeDir, CommitGraphIndex.SNAPSHOT_FILE);
+        assertThat(snapshotFile.isFile()).isTrue();
+        assertThat(CommitGraphFile.map(snapshotFile).identifierCount()).isEqualTo(4);
+
+        open();
+        storedIndex.unregister();
+        appendCommit("c4", "c3");
+        storedIndex = new CommitGraphIndex(storedDB, labels, relationshipTypes);
+
+        long appended = storedIndex.findCommit("c4");
+        assertThat(appended).isEqualTo(nodeId("c4"));
+        assertThat(storedIndex.findCommit("c1")).isEqualTo(nodeId("c1"));
+        assertThat(storedIndex.log(appended, 10)).hasSize(5).endsWith(nodeId("c0"));
+        close();
+
+        assertThat(CommitGraphFile.map(snapshotFile).identifierCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void should_reload_history_when_snapshot_is_unreadable() throws IOException {
+        File snapshotFile = new File(storeDir, CommitGraphIndex.SNAPSHOT_FILE);
+        Files.write(snapshotFile.toPath(), new byte[] {1, 2, 3});
+
+        open();
+        assertThat(storedIndex.size()).isEqualTo(4);
+        assertThat(storedIndex.findCommit("c3")).isEqualTo(nodeId("c3"));
+        assertThat(storedIndex.findCommit("unknown")).isEqualTo(CommitGraphIndex.NO_COMMIT);
+        assertThat(CommitGraphFile.map(snapshotFile).identifierCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void should_reload_history_when_mirrored_commits_were_replaced() {
+        open();
+        long replaced = nodeId("c3");
+        assertThat(storedIndex.findCommit("c3")).isEqualTo(replaced);
+        close();
+
+        open();
+        storedIndex.unregister();
+        try (Transaction tx = storedDB.beginTx()) {
+            // as if the node id had been reused by another commit
+            commitNode("c3").setProperty("identifier", "r3");
+            tx.success();
+        }
+        appendCommit("c4", "c2");
+        storedIndex = new CommitGraphIndex(storedDB, labels, relationshipTypes);
+
+        assertThat(storedIndex.findCommit("c3")).isEqualTo(CommitGraphIndex.NO_COMMIT);
+        assertThat(storedIndex.findCommit("r3")).isEqualTo(replaced);
+        assertThat(storedIndex.findCommit("c4")).isEqualTo(nodeId("c4"));
+    }
+
+    @Test
+    public void should_reload_history_when_mirrored_commits_gained_parents() {
+        open();
+        assertThat(storedIndex.size()).isEqualTo(4);
+        close();
+
+        open();
+        storedIndex.unregister();
+        try (Transaction tx = storedDB.beginTx()) {
+            Node root = storedDB.createNode(labels.findAllLabels(Commit.class));
+            root.setProperty("identifier", "r0");
+            root.createRelationshipTo(commitNode("c2"), relationshipTypes.findRelationshipType(ParentCommit.class));
+            tx.success();
+        }
+        storedIndex = new CommitGraphIndex(storedDB, labels, relationshipTypes);
+
+        assertThat(storedIndex.isAncestor(nodeId("r0"), nodeId("c3"))).isTrue();
+        assertThat(storedIndex.findMergeBase(nodeId("r0"), nodeId("c1"))).isEqualTo(CommitGraphIndex.NO_COMMIT);
+    }
+
+    private void open() {
+        storedDB = new GraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+        storedIndex = new CommitGraphIndex(storedDB, labels, relationshipTypes);
+    }
+
+    private void close() {
+        if (storedDB != null) {
+            storedIndex.unregister();
+            storedDB.shutdown();
+            storedDB = null;
+        }
+    }
+
+    private void appendCommit(String identifier, String parentIdentifier) {
+        try (Transaction tx = storedDB.beginTx()) {
+            Node parent = commitNode(parentIdentifier);
+            Node commit = storedDB.createNode(labels.findAllLabels(Commit.class));
+            commit.setProperty("identifier", identifier);
+            commit.setProperty(GENERATION, (Integer) parent.getProperty(GENERATION) + 1);
+            parent.createRelationshipTo(commit, relationshipTypes.findRelationshipType(ParentCommit.class));
+            tx.success();
+        }
+    }
+
+    private long nodeId(String identifier) {
+        try (Transaction tx = storedDB.beginTx()) {
+            long result = commitNode(identifier).getId();
+            tx.success();
+            return result;
+        }
+    }
+
+    private Node commitNode(String identifier) {
+        for (Node commit : at(storedDB).getAllNodesWithLabel(labels.findAllLabels(Commit.class)[0])) {
+            if (identifier.equals(commit.getProperty("identifier"))) {
+                return commit;
+            }
+        }
+        throw new IllegalArgumentException(identifier);
+    }
+}
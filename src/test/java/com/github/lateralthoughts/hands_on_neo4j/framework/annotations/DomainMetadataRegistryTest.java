@@ -0,0 +1,91 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.annotations;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.datastructures.Entry;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.ClassUtils;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.DomainUtils;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DomainMetadataRegistryTest {
+
+    private static final List<Class<? extends Annotation>> FIELD_ANNOTATIONS = ImmutableList.of(
+        Property.class, UniqueIdentifier.class, RelationType.Start.class, RelationType.End.class
+    );
+
+    private final DomainMetadataRegistry registry = new DomainMetadataRegistry(new ClassUtils(), new DomainUtils());
+
+    @Test
+    public void should_generate_metadata_of_domain_classes_at_compile_time() {
+        Commit parent = new Commit("0xcafe", "Parent");
+        Commit child = new Commit("0xbabe", null);
+        List<Domain> domains = ImmutableList.<Domain>of(
+            new Project("BIRGGIT"),
+            parent,
+            new Branch(new Project("BIRGGIT"), parent, "master"),
+            new ParentCommit(parent, child)
+        );
+
+        for (Domain domain : domains) {
+            assertThat(DomainMetadataRegistry.generatedMetadata(domain.getClass()).isPresent()).isTrue();
+            assertSameDeclarations(domain, registry.get(domain), registry.reflect(domain.getClass()));
+        }
+    }
+
+    @Test
+    public void should_reflect_upon_classes_without_generated_metadata() {
+        assertThat(DomainMetadataRegistry.generatedMetadata(Unprocessed.class).isPresent()).isFalse();
+
+        DomainMetadata metadata = registry.get(Unprocessed.class);
+        assertThat(metadata.getLabelNames()).containsExactly("UNPROCESSED");
+        assertThat(metadata.getProperties()).hasSize(1);
+        assertThat(metadata.getProperties().get(0).getValue().get(new Unprocessed())).isEqualTo("hidden");
+    }
+
+    private static void assertSameDeclarations(Domain domain, DomainMetadata generated, DomainMetadata reflected) {
+        assertThat(generated.isNode()).isEqualTo(reflected.isNode());
+        assertThat(generated.isRelationship()).isEqualTo(reflected.isRelationship());
+        assertThat(generated.getLabelNames()).isEqualTo(reflected.getLabelNames());
+        assertThat(String.valueOf(generated.getRelationshipType())).isEqualTo(String.valueOf(reflected.getRelationshipType()));
+        assertThat(generated.isDirected()).isEqualTo(reflected.isDirected());
+        assertThat(generated.getIndexName()).isEqualTo(reflected.getIndexName());
+        assertThat(read(domain, generated.getProperties())).isEqualTo(read(domain, reflected.getProperties()));
+        assertThat(read(domain, generated.getUniqueIdentifiers())).isEqualTo(read(domain, reflected.getUniqueIdentifiers()));
+        for (Class<? extends Annotation> annotationClass : FIELD_ANNOTATIONS) {
+            assertThat(names(generated.getFieldsAnnotatedWith(annotationClass)))
+                .isEqualTo(names(reflected.getFieldsAnnotatedWith(annotationClass)));
+        }
+    }
+
+    private static List<String> read(Domain domain, List<Entry<String, FieldAccessor>> properties) {
+        List<String> result = new ArrayList<>();
+        for (Entry<String, FieldAccessor> property : properties) {
+            result.add(property.getKey() + "=" + property.getValue().get(domain));
+        }
+        return result;
+    }
+
+    private static List<String> names(List<FieldAccessor> fields) {
+        List<String> result = new ArrayList<>();
+        for (FieldAccessor field : fields) {
+            result.add(field.getName());
+        }
+        return result;
+    }
+
+    @Labeled
+    private static class Unprocessed implements Domain {
+        @Property
+        private final String secret = "hidden";
+    }
+}
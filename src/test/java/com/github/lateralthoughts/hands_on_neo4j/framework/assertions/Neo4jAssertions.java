@@ -5,7 +5,7 @@ import org.neo4j.graphdb.*;
 
 public class Neo4jAssertions extends Assertions {
 
-    public static ResourceIterableAssert assertThat(ResourceIterable<?> actual) {
+    public static <T> ResourceIterableAssert assertThat(ResourceIterable<T> actual) {
         return new ResourceIterableAssert(actual);
     }
 
@@ -3,17 +3,34 @@ package com.github.lateralthoughts.hands_on_neo4j.framework.cypher;
 import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
 import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
 import com.github.lateralthoughts.hands_on_neo4j.domain.Domain;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
 import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
-import org.junit.Ignore;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableMap;
 import org.junit.Test;
+import org.neo4j.cypher.ExecutionEngine;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
+import org.neo4j.kernel.logging.BufferingLogger;
+import org.neo4j.tooling.GlobalGraphOperations;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
-import static org.assertj.core.api.Assertions.assertThat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-@Ignore
-@Component
-public class DomainToCypherTest {
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static org.neo4j.graphdb.DynamicLabel.label;
+import static org.neo4j.graphdb.DynamicRelationshipType.withName;
+
+public class DomainToCypherTest extends GraphTestSuite {
 
     @Autowired
     DomainToCypher domainToCypher;
@@ -34,6 +51,18 @@ public class DomainToCypherTest {
             );
     }
 
+    @Test
+    public void should_leave_null_properties_out() {
+        assertThat(domainToCypher.cypherize(new Commit("0xcafebabe", null)))
+            .isEqualTo("(n:COMMIT {identifier:'0xcafebabe'})");
+        assertThat(domainToCypher.cypherize(new Branch(new Project("BIRGGIT"), new Commit("0xcafebabe", null))))
+            .isEqualTo(
+                "(n:PROJECT {name:'BIRGGIT'})" +
+                    "-[:HAS_BRANCH {name:'munster'}]->" +
+                    "(n:COMMIT {identifier:'0xcafebabe'})"
+            );
+    }
+
     @Test
     public void should_visit_project() {
         Project project = new Project("BIRGGIT");
@@ -61,4 +90,235 @@ public class DomainToCypherTest {
                     "(n:COMMIT {identifier:'0xbwahahaha',message:'Breaks!'})"
             );
     }
+
+    @Test
+    public void should_append_to_provided_output() {
+        StringBuilder output = new StringBuilder("CREATE ");
+        domainToCypher.cypherize(
+            new ParentCommit(
+                new Commit("0xcafe", "Parent"),
+                new Commit("0xbabe", "Child")
+            ),
+            output
+        );
+
+        assertThat(output.toString())
+            .isEqualTo(
+                "CREATE (n:COMMIT {identifier:'0xcafe',message:'Parent'})" +
+                    "-[:HAS_PARENT]->" +
+                    "(n:COMMIT {identifier:'0xbabe',message:'Child'})"
+            );
+    }
+
+    @Test
+    public void should_visit_commit_with_parameters() {
+        CypherStatement statement = domainToCypher.cypherizeParameterized(
+            new Commit("0xcafebabe", "Hello world")
+        );
+
+        assertThat(statement.getQuery())
+            .isEqualTo("(n:COMMIT {identifier:{p0},message:{p1}})");
+        assertThat(statement.getParameters())
+            .isEqualTo(ImmutableMap.<String, Object>of("p0", "0xcafebabe", "p1", "Hello world"));
+    }
+
+    @Test
+    public void should_render_the_same_parameterized_query_for_the_same_class() {
+        Branch branch = new Branch(new Project("BIRGGIT"), new Commit("0xbwahahaha", "Breaks!"));
+        Branch otherBranch = new Branch(new Project("GIT"), new Commit("0xdeadbeef", "Fixes!"), "prod");
+
+        CypherStatement statement = domainToCypher.cypherizeParameterized(branch);
+
+        assertThat(statement.getQuery())
+            .isEqualTo(domainToCypher.cypherizeParameterized(otherBranch).getQuery())
+            .isEqualTo(
+                "(n:PROJECT {name:{p0}})" +
+                    "-[:HAS_BRANCH {name:{p1}}]->" +
+                    "(n:COMMIT {identifier:{p2},message:{p3}})"
+            );
+        assertThat(statement.getParameters().values())
+            .containsExactly("BIRGGIT", "munster", "0xbwahahaha", "Breaks!");
+    }
+
+    @Test
+    public void should_execute_parameterized_statement_with_quoted_values() {
+        CypherStatement statement = domainToCypher.cypherizeParameterized(
+            new Commit("0xquote", "Fixed so-called 'awesomeness'")
+        );
+
+        try (Transaction tx = graphDB.beginTx()) {
+            new ExecutionEngine(graphDB, new BufferingLogger())
+                .execute("CREATE " + statement.getQuery(), statement.getParameters());
+
+            Node commit = graphDB.findNodesByLabelAndProperty(label("COMMIT"), "identifier", "0xquote")
+                .iterator().next();
+            assertThat(commit).hasProperty("message", "Fixed so-called 'awesomeness'");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_create_commits_in_batches() {
+        ImmutableList<CypherStatement> statements = domainToCypher.cypherizeBatch(
+            ImmutableList.of(
+                new Commit("0x01", "First"),
+                new Commit("0x02", "Second"),
+                new Commit("0x03", "Third")
+            ),
+            2
+        );
+
+        assertThat(statements).hasSize(2);
+        assertThat(statements.get(0).getQuery())
+            .isEqualTo("WITH {rows} AS rows FOREACH (row IN rows | CREATE (n:COMMIT {identifier:row.p0,message:row.p1}))");
+
+        try (Transaction tx = graphDB.beginTx()) {
+            ExecutionEngine engine = new ExecutionEngine(graphDB, new BufferingLogger());
+            for (CypherStatement statement : statements) {
+                engine.execute(statement.getQuery(), statement.getParameters());
+            }
+
+            assertThat(Iterables.size(GlobalGraphOperations.at(graphDB).getAllNodesWithLabel(label("COMMIT")))).isEqualTo(3);
+            tx.success();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_batches_of_mixed_classes() {
+        domainToCypher.cypherizeBatch(ImmutableList.of(
+            new Commit("0x01", "First"),
+            new Project("BIRGGIT")
+        ));
+    }
+
+    @Test
+    public void should_merge_commit_on_its_unique_identifier() {
+        CypherStatement statement = domainToCypher.cypherizeUpsert(new Commit("0xcafebabe", "Hello world"));
+
+        assertThat(statement.getQuery())
+            .isEqualTo(
+                "MATCH (n:COMMIT) WHERE n.identifier = {p0} WITH collect(n) AS existing" +
+                    " FOREACH (n IN existing | SET n.message = {p1})" +
+                    " FOREACH (x IN CASE WHEN length(existing) = 0 THEN [1] ELSE [] END |" +
+                    " CREATE (n:COMMIT {identifier:{p0}}) SET n.message = {p1})"
+            );
+        assertThat(statement.getParameters().values())
+            .containsExactly("0xcafebabe", "Hello world");
+    }
+
+    @Test
+    public void should_match_branch_tips_on_their_unique_identifiers() {
+        CypherStatement statement = domainToCypher.cypherizeUpsert(
+            new Branch(new Project("BIRGGIT"), new Commit("0xbwahahaha", "Breaks!"))
+        );
+
+        assertThat(statement.getQuery())
+            .isEqualTo(
+                "MATCH (s:PROJECT), (e:COMMIT) WHERE s.name = {p0} AND e.identifier = {p1}" +
+                    " WITH s, e MATCH (s)-[old?:HAS_BRANCH]->() WITH s, e, collect(old) AS previous" +
+                    " FOREACH (old IN filter(old IN previous WHERE old.name = {p2} AND endNode(old) <> e) | DELETE old)" +
+                    " CREATE UNIQUE (s)-[r:HAS_BRANCH {name:{p2}}]->(e)"
+            );
+        assertThat(statement.getParameters().values())
+            .containsExactly("BIRGGIT", "0xbwahahaha", "munster");
+    }
+
+    @Test
+    public void should_link_parent_commits_by_their_endpoints_only() {
+        CypherStatement statement = domainToCypher.cypherizeUpsert(
+            new ParentCommit(new Commit("0xcafe", "Parent"), new Commit("0xbabe", "Child"))
+        );
+
+        assertThat(statement.getQuery())
+            .isEqualTo(
+                "MATCH (s:COMMIT), (e:COMMIT) WHERE s.identifier = {p0} AND e.identifier = {p1}" +
+                    " CREATE UNIQUE (s)-[r:HAS_PARENT]->(e)"
+            );
+        assertThat(statement.getParameters().values())
+            .containsExactly("0xcafe", "0xbabe");
+    }
+
+    @Test
+    public void should_not_duplicate_parent_commits_created_without_cypher() {
+        ParentCommit link = new ParentCommit(new Commit("0x01", "Parent"), new Commit("0x02", "Child"));
+
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.createParentCommit(link);
+            CypherStatement statement = domainToCypher.cypherizeUpsert(link);
+            new ExecutionEngine(graphDB, new BufferingLogger()).execute(statement.getQuery(), statement.getParameters());
+
+            assertThat(Iterables.size(GlobalGraphOperations.at(graphDB).getAllRelationships())).isEqualTo(1);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_replay_upserts_idempotently() {
+        Commit parent = new Commit("0x01", "Parent");
+        Commit child = new Commit("0x02", "Child");
+
+        try (Transaction tx = graphDB.beginTx()) {
+            ExecutionEngine engine = new ExecutionEngine(graphDB, new BufferingLogger());
+            for (int i = 0; i < 2; i++) {
+                for (Domain domain : ImmutableList.<Domain>of(parent, child, new ParentCommit(parent, child))) {
+                    CypherStatement statement = domainToCypher.cypherizeUpsert(domain);
+                    engine.execute(statement.getQuery(), statement.getParameters());
+                }
+            }
+            CypherStatement amended = domainToCypher.cypherizeUpsert(new Commit("0x02", "Amended child"));
+            engine.execute(amended.getQuery(), amended.getParameters());
+
+            GlobalGraphOperations globalOps = GlobalGraphOperations.at(graphDB);
+            assertThat(Iterables.size(globalOps.getAllNodesWithLabel(label("COMMIT")))).isEqualTo(2);
+            assertThat(Iterables.size(globalOps.getAllRelationships())).isEqualTo(1);
+            assertThat(graphDB.findNodesByLabelAndProperty(label("COMMIT"), "identifier", "0x02").iterator().next())
+                .hasProperty("message", "Amended child");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_repoint_moved_branches() {
+        Project project = new Project("BIRGGIT");
+        Commit first = new Commit("0x01", "First");
+        Commit second = new Commit("0x02", "Second");
+
+        try (Transaction tx = graphDB.beginTx()) {
+            ExecutionEngine engine = new ExecutionEngine(graphDB, new BufferingLogger());
+            for (Domain domain : ImmutableList.<Domain>of(
+                project, first, second,
+                new Branch(project, first, "master"), new Branch(project, first, "prod"),
+                new Branch(project, second, "master"), new Branch(project, second, "master"))) {
+
+                CypherStatement statement = domainToCypher.cypherizeUpsert(domain);
+                engine.execute(statement.getQuery(), statement.getParameters());
+            }
+
+            Node projectNode = graphDB.findNodesByLabelAndProperty(label("PROJECT"), "name", "BIRGGIT").iterator().next();
+            Map<String, Object> tips = new HashMap<>();
+            for (Relationship branch : projectNode.getRelationships(Direction.OUTGOING, withName("HAS_BRANCH"))) {
+                assertThat(tips.put((String) branch.getProperty("name"), branch.getEndNode().getProperty("identifier"))).isNull();
+            }
+            assertThat(tips).isEqualTo(ImmutableMap.<String, Object>of("master", "0x02", "prod", "0x01"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_index_node_identifiers_upserts_look_up() {
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(indexedKeys("COMMIT")).containsExactly("identifier");
+            assertThat(indexedKeys("PROJECT")).containsExactly("name");
+            tx.success();
+        }
+    }
+
+    private List<String> indexedKeys(String labelName) {
+        List<String> result = new ArrayList<>();
+        for (IndexDefinition index : graphDB.schema().getIndexes(label(labelName))) {
+            assertThat(graphDB.schema().getIndexState(index)).isEqualTo(Schema.IndexState.ONLINE);
+            Iterables.addAll(result, index.getPropertyKeys());
+        }
+        return result;
+    }
 }
@@ -0,0 +1,24 @@
+package com.github.lateralthoughts.hands_on_neo4j.framework.utilities;
+
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import org.junit.Test;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.IdentifierCodec.isPackable;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.IdentifierCodec.pack;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.IdentifierCodec.unpack;
+
+public class IdentifierCodecTest extends GraphTestSuite {
+
+    @Test
+    public void should_pack_lowercase_hex_identifiers_only() {
+        String sha1 = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+        assertThat(pack(sha1)).hasSize(20);
+        assertThat(unpack(pack(sha1))).isEqualTo(sha1);
+        assertThat(isPackable("DA39")).isFalse();
+        assertThat(isPackable("abc")).isFalse();
+        assertThat(isPackable("0xcafe")).isFalse();
+        assertThat(isPackable("")).isFalse();
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.lateralthoughts.hands_on_neo4j.frontend;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+
+public class AsyncBIRGGITTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("async");
+
+    private AsyncBIRGGIT asyncBirggit;
+
+    @Before
+    public void prepare() {
+        birggit.init(new Branch(PROJECT, new Commit("c0", "c0")), new Commit("c1", "c1"));
+        asyncBirggit = new AsyncBIRGGIT(birggit, 2, 1);
+    }
+
+    @After
+    public void shutdown() throws InterruptedException {
+        asyncBirggit.shutdown();
+    }
+
+    @Test
+    public void should_commit_then_log_asynchronously() throws Exception {
+        Relationship branch = asyncBirggit.commit(new Commit("c2", "c2"), new Branch(PROJECT, new Commit("c1", "c1")))
+            .get(10, TimeUnit.SECONDS);
+        Collection<Node> logs = asyncBirggit.log(Branch.DEFAULT_BRANCH_NAME).get(10, TimeUnit.SECONDS);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(branch.getEndNode()).hasProperty("identifier", "c2");
+            assertThat(logs).hasSize(3);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_reject_mutations_once_writer_queue_is_full() throws Exception {
+        ListenableFuture<Relationship> running;
+        ListenableFuture<Relationship> queued;
+        try (Transaction tx = graphDB.beginTx()) {
+            tx.acquireWriteLock(birggit.findBranch(Branch.DEFAULT_BRANCH_NAME).getStartNode());
+
+            // handed over to the writer thread as it starts, hence not queued
+            running = asyncBirggit.commit(new Commit("c2", "c2"), new Branch(PROJECT, new Commit("c1", "c1")));
+            queued = asyncBirggit.commit(new Commit("c3", "c3"), new Branch(PROJECT, new Commit("c1", "c1")));
+            try {
+                asyncBirggit.commit(new Commit("c4", "c4"), new Branch(PROJECT, new Commit("c1", "c1")));
+                throw new AssertionError("Commit should have been rejected");
+            } catch (RejectedExecutionException expected) {
+                // writer busy and queue full
+            }
+            assertThat(asyncBirggit.log(Branch.DEFAULT_BRANCH_NAME).get(10, TimeUnit.SECONDS)).hasSize(2);
+            tx.success();
+        }
+
+        running.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+        assertThat(birggit.log(Branch.DEFAULT_BRANCH_NAME)).hasSize(4);
+    }
+}
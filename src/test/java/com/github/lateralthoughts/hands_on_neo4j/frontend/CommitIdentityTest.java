@@ -0,0 +1,104 @@
+package com.github.lateralthoughts.hands_on_neo4j.frontend;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.CommitUtils;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.UtilsModule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.CommitUtils.CONTENT_HASH;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.CommitUtils.IdentifierMode;
+import static com.github.lateralthoughts.hands_on_neo4j.framework.utilities.IdentifierCodec.unpack;
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.helpers.collection.IteratorUtil.count;
+
+@ContextConfiguration(initializers = CommitIdentityTest.Sha1Identifiers.class)
+public class CommitIdentityTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("content");
+
+    @Before
+    public void prepare() {
+        Commit first = new Commit("c1", "c1");
+        Commit second = new Commit("c2", "c2");
+        birggit.init(new Branch(PROJECT, new Commit("c0", "c0")), first, second);
+        birggit.init(new Branch(PROJECT, first, "side"), new Commit("s1", "s1"));
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.indexBranch(birggit.createBranch(new Branch(PROJECT, second, "other")));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_reuse_merge_commits_of_identical_content() throws NoSuchAlgorithmException {
+        Branch side = new Branch(PROJECT, new Commit("s1", "s1"), "side");
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        byte[] expected = sha1.digest("parent c2\nparent s1\n\nMerged side".getBytes(Charset.forName("UTF-8")));
+
+        try (Transaction tx = graphDB.beginTx()) {
+            Node merged = birggit.merge(new Branch(PROJECT, new Commit("c2", "c2")), side).getEndNode();
+            Node mergedAgain = birggit.merge(new Branch(PROJECT, new Commit("c2", "c2"), "other"), side).getEndNode();
+
+            assertThat(mergedAgain.getId()).isEqualTo(merged.getId());
+            assertThat(merged.getProperty("identifier")).isEqualTo(unpack(expected));
+            assertThat((byte[]) merged.getProperty(CONTENT_HASH)).isEqualTo(expected);
+            assertThat(count(merged.getRelationships(INCOMING))).isEqualTo(4);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_keep_random_identifiers_by_default() {
+        CommitUtils defaults = new UtilsModule().provideCommitUtils(new StandardEnvironment());
+        CommitUtils sha256 = new CommitUtils(IdentifierMode.SHA_256);
+
+        assertThat(defaults.isContentAddressed()).isFalse();
+        assertThat(defaults.uniqueIdentifier()).hasSize(36);
+        assertThat(sha256.contentHash(ImmutableList.of("c2", "s1"), "Merged side")).hasSize(32);
+        assertThat(sha256.contentHash(ImmutableList.of("s1", "c2"), "Merged side"))
+            .isNotEqualTo(sha256.contentHash(ImmutableList.of("c2", "s1"), "Merged side"));
+    }
+
+    @Test
+    public void should_link_commits_once_without_identifier() {
+        ParentCommit link = new ParentCommit(new Commit("cafe", "Parent"), new Commit("babe", "Child"));
+
+        try (Transaction tx = graphDB.beginTx()) {
+            Relationship created = birggit.createParentCommit(link);
+
+            assertThat(birggit.createParentCommit(link)).isEqualTo(created);
+            assertThat(created.getPropertyKeys()).isEmpty();
+            tx.success();
+        }
+    }
+
+    static class Sha1Identifiers implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+        @Override
+        public void initialize(ConfigurableApplicationContext context) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource(
+                "identifiers",
+                ImmutableMap.<String, Object>of(UtilsModule.IDENTIFIER_MODE, IdentifierMode.SHA_1.name())
+            ));
+        }
+    }
+}
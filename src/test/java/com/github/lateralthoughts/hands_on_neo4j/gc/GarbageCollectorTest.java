@@ -0,0 +1,134 @@
+package com.github.lateralthoughts.hands_on_neo4j.gc;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static org.neo4j.graphdb.DynamicLabel.label;
+
+public class GarbageCollectorTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("garbage");
+
+    @Autowired
+    private GarbageCollector garbageCollector;
+
+    @Before
+    public void prepare() {
+        birggit.init(new Branch(PROJECT, new Commit("c0", "c0")), new Commit("c1", "c1"), new Commit("c2", "c2"));
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.amend(birggit.findOneCommit("c1"), "amended c1");
+            birggit.commit(new Commit("detached", "detached"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_only_reclaim_disconnected_commits() {
+        GcReport report = garbageCollector.collect(1);
+
+        assertThat(report.getReclaimed()).isEqualTo(2);
+        assertThat(report.getPending()).isEqualTo(0);
+        assertThat(report.getInspected()).isGreaterThanOrEqualTo(report.getReclaimed());
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findOneCommit("detached")).isNull();
+            assertThat(birggit.findOneCommit("c1_amended")).isNotNull();
+            assertThat(birggit.findOneCommit("c2")).isNotNull();
+            assertThat(birggit.findOrphanCommits()).isEmpty();
+            tx.success();
+        }
+        assertThat(birggit.gc().getReclaimed()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_reclaim_commits_in_background() throws InterruptedException {
+        garbageCollector.start(1, 1000);
+        try {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (garbageCollector.progress().getReclaimed() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            garbageCollector.stop();
+        }
+
+        assertThat(garbageCollector.isRunning()).isFalse();
+        assertThat(garbageCollector.progress().getReclaimed()).isEqualTo(2);
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findOrphanCommits()).isEmpty();
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_ignore_candidates_linked_since() {
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.createParentCommit(new ParentCommit(new Commit("c2", "c2"), new Commit("detached", "detached")));
+            tx.success();
+        }
+
+        assertThat(garbageCollector.collect().getReclaimed()).isEqualTo(1);
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findOneCommit("detached")).isNotNull();
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_forget_candidates_deleted_since() {
+        garbageCollector.collect();
+        birggit.commit(new Commit("deleted", "deleted"));
+        assertThat(garbageCollector.pendingCandidates()).isEqualTo(1);
+
+        birggit.delete("deleted");
+
+        assertThat(garbageCollector.pendingCandidates()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_record_candidates_once_committed() {
+        garbageCollector.collect();
+
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.amend(birggit.findOneCommit("c2"), "amended c2");
+            assertThat(garbageCollector.pendingCandidates()).isEqualTo(0);
+            tx.success();
+        }
+
+        assertThat(garbageCollector.pendingCandidates()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_forget_candidates_of_rolled_back_transactions() {
+        garbageCollector.collect();
+
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.commit(new Commit("rolled back", "rolled back"));
+            tx.failure();
+        }
+        birggit.commit(new Commit("c3", "c3"));
+
+        assertThat(garbageCollector.pendingCandidates()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_reclaim_orphans_it_was_not_told_about() {
+        try (Transaction tx = graphDB.beginTx()) {
+            graphDB.createNode(label("COMMIT")).setProperty("identifier", "unreported");
+            tx.success();
+        }
+
+        assertThat(garbageCollector.collect().getReclaimed()).isEqualTo(3);
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findOrphanCommits()).isEmpty();
+            tx.success();
+        }
+    }
+}
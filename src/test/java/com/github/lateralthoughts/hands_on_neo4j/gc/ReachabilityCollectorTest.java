@@ -0,0 +1,64 @@
+package com.github.lateralthoughts.hands_on_neo4j.gc;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+
+public class ReachabilityCollectorTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("reachability");
+
+    @Autowired
+    private ReachabilityCollector collector;
+
+    @Before
+    public void prepare() {
+        Commit first = new Commit("c1", "c1");
+        birggit.init(new Branch(PROJECT, new Commit("c0", "c0")), first, new Commit("c2", "c2"));
+        birggit.init(new Branch(PROJECT, first, "side"), new Commit("s1", "s1"), new Commit("s2", "s2"));
+        birggit.init(new Branch(new Project("other"), new Commit("o0", "o0"), "other"), new Commit("o1", "o1"));
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.findBranch("side").delete();
+            birggit.commit(new Commit("detached", "detached"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_report_unreachable_commits_without_deleting_them_on_dry_run() {
+        GcReport report = collector.collect(true);
+
+        assertThat(report.isDryRun()).isTrue();
+        assertThat(report.getInspected()).isEqualTo(8);
+        assertThat(report.getReclaimed()).isEqualTo(3);
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findOneCommit("s2")).isNotNull();
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_sweep_commits_unreachable_from_all_branch_tips() {
+        GcReport report = collector.collect(2, false);
+
+        assertThat(report.getReclaimed()).isEqualTo(3);
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findOneCommit("s1")).isNull();
+            assertThat(birggit.findOneCommit("s2")).isNull();
+            assertThat(birggit.findOneCommit("detached")).isNull();
+            assertThat(birggit.findOneCommit("c0")).isNotNull();
+            assertThat(birggit.findOneCommit("c1")).isNotNull();
+            assertThat(birggit.findOneCommit("o0")).isNotNull();
+            tx.success();
+        }
+        assertThat(birggit.log(Branch.DEFAULT_BRANCH_NAME)).hasSize(3);
+        assertThat(collector.collect(false).getReclaimed()).isEqualTo(0);
+    }
+}
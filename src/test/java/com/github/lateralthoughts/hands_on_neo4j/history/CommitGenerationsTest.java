@@ -0,0 +1,106 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations.GENERATION;
+
+public class CommitGenerationsTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("generations");
+
+    @Autowired
+    private CommitGenerations generations;
+
+    @Autowired
+    private GenerationBackfill backfill;
+
+    @Before
+    public void prepare() {
+        Commit root = new Commit("root", "Initial commit");
+        Commit second = new Commit("second", "Second");
+        birggit.init(new Branch(PROJECT, root), second, new Commit("third", "Third"));
+        birggit.init(new Branch(PROJECT, second, "feature"), new Commit("feature", "Feature"));
+    }
+
+    @Test
+    public void should_maintain_generations_on_commit_and_merge() {
+        Relationship merged = birggit.merge(
+            new Branch(PROJECT, new Commit("third", "Third")),
+            new Branch(PROJECT, new Commit("feature", "Feature"), "feature")
+        );
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(generation("root")).isEqualTo(1);
+            assertThat(generation("second")).isEqualTo(2);
+            assertThat(generation("third")).isEqualTo(3);
+            assertThat(generation("feature")).isEqualTo(3);
+            assertThat(merged.getEndNode()).hasProperty(GENERATION, 4);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_raise_descendant_generations_when_linking_a_deeper_parent() {
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.createParentCommit(new ParentCommit(new Commit("third", "Third"), new Commit("feature", "Feature")));
+
+            assertThat(generation("feature")).isEqualTo(4);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_leave_descendants_of_unknown_generations_unknown() {
+        try (Transaction tx = graphDB.beginTx()) {
+            birggit.findOneCommit("third").removeProperty(GENERATION);
+            birggit.createParentCommit(new ParentCommit(new Commit("third", "Third"), new Commit("fourth", "Fourth")));
+
+            assertThat(generation("fourth")).isEqualTo(CommitGenerations.UNKNOWN);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_backfill_missing_generations() {
+        try (Transaction tx = graphDB.beginTx()) {
+            for (String identifier : new String[] {"root", "second", "third", "feature"}) {
+                birggit.findOneCommit(identifier).removeProperty(GENERATION);
+            }
+            tx.success();
+        }
+
+        assertThat(backfill.backfill(2)).isEqualTo(4);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(generation("root")).isEqualTo(1);
+            assertThat(generation("second")).isEqualTo(2);
+            assertThat(generation("third")).isEqualTo(3);
+            assertThat(generation("feature")).isEqualTo(3);
+            tx.success();
+        }
+        assertThat(backfill.backfill()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_check_reachability_from_branch_tips() {
+        assertThat(birggit.contains(Branch.DEFAULT_BRANCH_NAME, "second")).isTrue();
+        assertThat(birggit.contains("feature", "second")).isTrue();
+        assertThat(birggit.contains("feature", "third")).isFalse();
+        assertThat(birggit.contains(Branch.DEFAULT_BRANCH_NAME, "feature")).isFalse();
+        assertThat(birggit.contains(Branch.DEFAULT_BRANCH_NAME, "unknown")).isFalse();
+    }
+
+    private int generation(String identifier) {
+        return generations.generationOf(birggit.findOneCommit(identifier));
+    }
+}
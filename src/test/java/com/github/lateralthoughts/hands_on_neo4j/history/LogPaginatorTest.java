@@ -0,0 +1,96 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.base.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.google.common.collect.Collections2.transform;
+
+public class LogPaginatorTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("pages");
+
+    @Autowired
+    private LogPaginator paginator;
+
+    @Before
+    public void prepare() {
+        Commit root = new Commit("c0", "c0");
+        Commit first = new Commit("c1", "c1");
+        birggit.init(
+            new Branch(PROJECT, root),
+            first,
+            new Commit("c2", "c2"),
+            new Commit("c3", "c3"),
+            new Commit("c4", "c4")
+        );
+        birggit.init(new Branch(PROJECT, first, "side"), new Commit("s1", "s1"), new Commit("s2", "s2"));
+    }
+
+    @Test
+    public void should_log_branch_page_by_page() {
+        CommitPage firstPage = birggit.logPage(Branch.DEFAULT_BRANCH_NAME, 2);
+        CommitPage secondPage = birggit.nextLogPage(firstPage.getNextCursor().get(), 2);
+        CommitPage lastPage = birggit.nextLogPage(secondPage.getNextCursor().get(), 2);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(identifiers(firstPage.getCommits())).containsExactly("c4", "c3");
+            assertThat(identifiers(secondPage.getCommits())).containsExactly("c2", "c1");
+            assertThat(identifiers(lastPage.getCommits())).containsExactly("c0");
+            assertThat(lastPage.hasNext()).isFalse();
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_log_merged_history_once_and_children_first() {
+        Relationship merged = birggit.merge(
+            new Branch(PROJECT, new Commit("c4", "c4")),
+            new Branch(PROJECT, new Commit("s2", "s2"), "side")
+        );
+
+        List<String> logged = new ArrayList<>();
+        try (Transaction tx = graphDB.beginTx()) {
+            CommitPage page = paginator.firstPage(merged.getEndNode(), 3);
+            logged.addAll(identifiers(page.getCommits()));
+            while (page.hasNext()) {
+                page = birggit.nextLogPage(page.getNextCursor().get(), 3);
+                logged.addAll(identifiers(page.getCommits()));
+            }
+            tx.success();
+        }
+
+        assertThat(logged).hasSize(8).doesNotHaveDuplicates();
+        assertThat(logged.indexOf("s1")).isGreaterThan(logged.indexOf("s2"));
+        assertThat(logged.indexOf("c1")).isGreaterThan(logged.indexOf("s1"));
+        assertThat(logged.indexOf("c1")).isGreaterThan(logged.indexOf("c2"));
+        assertThat(logged.get(7)).isEqualTo("c0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_malformed_cursors() {
+        birggit.nextLogPage("not-a-cursor", 2);
+    }
+
+    private static Collection<String> identifiers(Collection<Node> commits) {
+        return transform(commits, new Function<Node, String>() {
+            @Override
+            public String apply(Node input) {
+                return input.getProperty("identifier").toString();
+            }
+        });
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.base.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.google.common.collect.Iterators.transform;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.neo4j.graphdb.DynamicLabel.label;
+import static org.neo4j.tooling.GlobalGraphOperations.at;
+
+public class LogStreamerTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("streams");
+
+    @Before
+    public void prepare() {
+        Commit second = new Commit("c1", "Second");
+        birggit.init(new Branch(PROJECT, new Commit("c0", "Initial commit")), second, new Commit("c2", "Third"));
+        birggit.init(new Branch(PROJECT, second, "prod"), new Commit("p1", "Release"));
+    }
+
+    @Test
+    public void should_stream_detached_commits_readable_outside_of_any_transaction() {
+        List<Commit> commits;
+        try (CommitStream stream = birggit.streamLog(Branch.DEFAULT_BRANCH_NAME)) {
+            commits = newArrayList(stream);
+        }
+
+        assertThat(commits).containsExactly(new Commit("c2", "Third"), new Commit("c1", "Second"), new Commit("c0", "Initial commit"));
+        assertThat(commits.get(0).getMessage()).isEqualTo("Third");
+    }
+
+    @Test
+    public void should_stop_streaming_once_closed() {
+        CommitStream stream = birggit.streamLog(Branch.DEFAULT_BRANCH_NAME);
+        assertThat(stream.next().getIdentifier()).isEqualTo("c2");
+
+        stream.close();
+        stream.close();
+
+        assertThat(stream.hasNext()).isFalse();
+    }
+
+    @Test
+    public void should_stream_second_branch_down_to_join_point() {
+        try (CommitStream stream = birggit.streamLog(Branch.DEFAULT_BRANCH_NAME, "prod")) {
+            assertThat(newArrayList(transform(stream, identifiers()))).containsExactly("p1", "c1");
+        }
+    }
+
+    @Test
+    public void should_stream_whole_second_branch_when_histories_are_disjoint() {
+        birggit.init(new Branch(PROJECT, new Commit("o0", "Orphan root"), "orphan"), new Commit("o1", "Orphan"));
+
+        try (CommitStream stream = birggit.streamLog(Branch.DEFAULT_BRANCH_NAME, "orphan")) {
+            assertThat(newArrayList(transform(stream, identifiers()))).containsExactly("o1", "o0");
+        }
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(nodeIdentifiers(birggit.log(Branch.DEFAULT_BRANCH_NAME, "orphan"))).containsExactly("o1", "o0");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_stream_the_same_commits_as_range_logs() {
+        birggit.merge(
+            new Branch(PROJECT, new Commit("p1", "Release"), "prod"),
+            new Branch(PROJECT, new Commit("c2", "Third"))
+        );
+        birggit.init(new Branch(PROJECT, new Commit("c2", "Third")), new Commit("c3", "Fourth"));
+
+        List<String> streamed;
+        try (CommitStream stream = birggit.streamLog("prod", Branch.DEFAULT_BRANCH_NAME)) {
+            streamed = newArrayList(transform(stream, identifiers()));
+        }
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(streamed)
+                .isEqualTo(nodeIdentifiers(birggit.log("prod", Branch.DEFAULT_BRANCH_NAME)))
+                .containsExactly("c3", "c2");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_log_diamond_histories_once_per_commit_without_generations() {
+        birggit.merge(
+            new Branch(PROJECT, new Commit("c2", "Third")),
+            new Branch(PROJECT, new Commit("p1", "Release"), "prod")
+        );
+        try (Transaction tx = graphDB.beginTx()) {
+            for (Node commit : at(graphDB).getAllNodesWithLabel(label("COMMIT"))) {
+                commit.removeProperty(CommitGenerations.GENERATION);
+            }
+            tx.success();
+        }
+
+        Collection<Node> outside = birggit.log(Branch.DEFAULT_BRANCH_NAME, 100);
+        try (Transaction tx = graphDB.beginTx()) {
+            List<String> logged = nodeIdentifiers(birggit.log(Branch.DEFAULT_BRANCH_NAME, 100));
+
+            assertThat(logged).hasSize(5).doesNotHaveDuplicates()
+                .contains("c2", "p1", "c1", "c0");
+            assertThat(logged.get(0)).isEqualTo(birggit.findBranch(Branch.DEFAULT_BRANCH_NAME).getEndNode().getProperty("identifier"));
+            assertThat(nodeIdentifiers(outside)).isEqualTo(logged);
+            tx.success();
+        }
+    }
+
+    private static List<String> nodeIdentifiers(Collection<Node> commits) {
+        List<String> result = new ArrayList<>();
+        for (Node commit : commits) {
+            result.add(commit.getProperty("identifier").toString());
+        }
+        return result;
+    }
+
+    private static Function<Commit, String> identifiers() {
+        return new Function<Commit, String>() {
+            @Override
+            public String apply(Commit input) {
+                return input.getIdentifier();
+            }
+        };
+    }
+}
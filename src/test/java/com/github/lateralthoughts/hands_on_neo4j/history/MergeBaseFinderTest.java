@@ -0,0 +1,92 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.base.Function;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collection;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.google.common.collect.Collections2.transform;
+
+public class MergeBaseFinderTest extends GraphTestSuite {
+
+    @Autowired
+    private MergeBaseFinder mergeBases;
+
+    @Test
+    public void should_find_ancestor_tip_on_linear_history() {
+        try (Transaction tx = graphDB.beginTx()) {
+            chain("c0", "c1", "c2", "c3");
+
+            assertThat(mergeBases.findMergeBase(commit("c1"), commit("c3"))).isEqualTo(commit("c1"));
+            assertThat(mergeBases.findMergeBase(commit("c3"), commit("c1"))).isEqualTo(commit("c1"));
+            assertThat(mergeBases.findMergeBase(commit("c2"), commit("c2"))).isEqualTo(commit("c2"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_prefer_best_ancestor_over_older_common_ancestors() {
+        try (Transaction tx = graphDB.beginTx()) {
+            chain("root", "base", "second");
+            chain("root", "merge");
+            chain("base", "merge");
+
+            assertThat(mergeBases.findMergeBases(commit("merge"), commit("second"))).containsExactly(commit("base"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_find_all_merge_bases_of_criss_cross_merges() {
+        try (Transaction tx = graphDB.beginTx()) {
+            chain("root", "a1", "a2");
+            chain("root", "b1", "b2");
+            chain("b1", "a2");
+            chain("a1", "b2");
+
+            assertThat(identifiers(mergeBases.findMergeBases(commit("a2"), commit("b2"))))
+                .containsOnly("a1", "b1");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_not_find_merge_base_of_unrelated_histories() {
+        try (Transaction tx = graphDB.beginTx()) {
+            chain("a0", "a1");
+            chain("b0", "b1");
+
+            assertThat(mergeBases.findMergeBase(commit("a1"), commit("b1"))).isNull();
+            tx.success();
+        }
+    }
+
+    private void chain(String... identifiers) {
+        for (int i = 1; i < identifiers.length; i++) {
+            birggit.createParentCommit(new ParentCommit(
+                new Commit(identifiers[i - 1], identifiers[i - 1]),
+                new Commit(identifiers[i], identifiers[i])
+            ));
+        }
+    }
+
+    private Node commit(String identifier) {
+        return birggit.findOneCommit(identifier);
+    }
+
+    private static Collection<String> identifiers(Collection<Node> commits) {
+        return transform(commits, new Function<Node, String>() {
+            @Override
+            public String apply(Node input) {
+                return input.getProperty("identifier").toString();
+            }
+        });
+    }
+}
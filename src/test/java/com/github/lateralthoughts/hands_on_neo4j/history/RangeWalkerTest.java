@@ -0,0 +1,96 @@
+package com.github.lateralthoughts.hands_on_neo4j.history;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.base.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collection;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.google.common.collect.Collections2.transform;
+
+public class RangeWalkerTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("ranges");
+
+    @Autowired
+    private RangeWalker rangeWalker;
+
+    @Before
+    public void prepare() {
+        Commit root = new Commit("c0", "c0");
+        Commit first = new Commit("c1", "c1");
+        birggit.init(new Branch(PROJECT, root), first, new Commit("c2", "c2"), new Commit("c3", "c3"));
+        birggit.init(new Branch(PROJECT, first, "side"), new Commit("s1", "s1"), new Commit("s2", "s2"));
+    }
+
+    @Test
+    public void should_log_commits_reachable_only_from_second_branch() {
+        Collection<Node> sideOnly = birggit.logRange(Branch.DEFAULT_BRANCH_NAME, "side", LogOrder.TOPOLOGICAL);
+        Collection<Node> masterOnly = birggit.logRange("side", Branch.DEFAULT_BRANCH_NAME, LogOrder.TOPOLOGICAL, 1);
+        Collection<Node> sideWithBoundary = birggit.log(Branch.DEFAULT_BRANCH_NAME, "side");
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(identifiers(sideOnly)).containsExactly("s2", "s1");
+            assertThat(identifiers(masterOnly)).containsExactly("c3");
+            assertThat(identifiers(sideWithBoundary)).containsExactly("s2", "s1", "c1");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_exclude_history_merged_into_first_branch() {
+        Relationship merged = birggit.merge(
+            new Branch(PROJECT, new Commit("c3", "c3")),
+            new Branch(PROJECT, new Commit("s2", "s2"), "side")
+        );
+        birggit.init(new Branch(PROJECT, new Commit("s2", "s2"), "late"), new Commit("l1", "l1"));
+
+        try (Transaction tx = graphDB.beginTx()) {
+            Node mergeCommit = merged.getEndNode();
+            Node late = birggit.findOneCommit("l1");
+
+            assertThat(identifiers(rangeWalker.walk(mergeCommit, late, LogOrder.TOPOLOGICAL, RangeWalker.NO_LIMIT)))
+                .containsExactly("l1");
+            assertThat(identifiers(rangeWalker.walk(late, mergeCommit, LogOrder.TOPOLOGICAL, RangeWalker.NO_LIMIT, true)))
+                .containsExactly(identifier(mergeCommit), "c3", "c2", "s2", "c1");
+            assertThat(rangeWalker.walk(late, late, LogOrder.TOPOLOGICAL, RangeWalker.NO_LIMIT)).isEmpty();
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_log_most_recently_inserted_commits_first() {
+        birggit.init(new Branch(PROJECT, new Commit("c3", "c3")), new Commit("c4", "c4"));
+
+        Collection<Node> all = birggit.logRange("side", Branch.DEFAULT_BRANCH_NAME, LogOrder.INSERTION);
+        Collection<Node> limited = birggit.logRange("side", Branch.DEFAULT_BRANCH_NAME, LogOrder.INSERTION, 2);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(identifiers(all)).containsExactly("c4", "c3", "c2");
+            assertThat(identifiers(limited)).containsExactly("c4", "c3");
+            tx.success();
+        }
+    }
+
+    private static Collection<String> identifiers(Collection<Node> commits) {
+        return transform(commits, new Function<Node, String>() {
+            @Override
+            public String apply(Node input) {
+                return identifier(input);
+            }
+        });
+    }
+
+    private static String identifier(Node commit) {
+        return commit.getProperty("identifier").toString();
+    }
+}
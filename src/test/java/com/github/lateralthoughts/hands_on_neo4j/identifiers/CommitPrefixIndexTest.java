@@ -0,0 +1,119 @@
+package com.github.lateralthoughts.hands_on_neo4j.identifiers;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.LabelFinder;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+
+public class CommitPrefixIndexTest extends GraphTestSuite {
+
+    @Autowired
+    private CommitPrefixIndex index;
+    @Autowired
+    private LabelFinder labels;
+
+    @Before
+    public void prepare() {
+        birggit.commit(new Commit("abc123", "first"));
+        birggit.commit(new Commit("abd456", "second"));
+        birggit.commit(new Commit("abc789", "third"));
+    }
+
+    @Test
+    public void should_resolve_unique_prefixes() {
+        assertThat(identifier(birggit.findByPrefix("abd"))).isEqualTo("abd456");
+        assertThat(identifier(birggit.findByPrefix("abc7"))).isEqualTo("abc789");
+        assertThat(identifier(birggit.findByPrefix("abc123"))).isEqualTo("abc123");
+        assertThat(birggit.findByPrefix("abe")).isNull();
+
+        PrefixMatch match = index.find("ab");
+        assertThat(match.isAmbiguous()).isTrue();
+        assertThat(match.getCandidates()).containsExactly("abc123", "abc789", "abd456");
+        try {
+            birggit.findByPrefix("abc");
+            throw new AssertionError("Ambiguous prefix should be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage()).contains("abc123").contains("abc789");
+        }
+    }
+
+    @Test
+    public void should_follow_commits_amends_and_deletions() {
+        assertThat(index.find("f").isFound()).isFalse();
+        birggit.commit(new Commit("f00d", "fourth"));
+        assertThat(identifier(birggit.findByPrefix("f"))).isEqualTo("f00d");
+
+        birggit.amend(birggit.findOneCommit("abd456"), "second, reworded");
+        assertThat(index.find("abd").getCandidates()).containsExactly("abd456", "abd456_amended");
+        assertThat(identifier(birggit.findByPrefix("abd456"))).isEqualTo("abd456");
+
+        birggit.delete("abd456");
+        assertThat(identifier(birggit.findByPrefix("abd"))).isEqualTo("abd456_amended");
+    }
+
+    @Test
+    public void should_find_exact_identifiers_verbatim() {
+        birggit.commit(new Commit("it's", "quoted"));
+        birggit.amend(birggit.findOneCommit("abc123"), "first, reworded");
+        birggit.delete("abd456");
+
+        assertThat(identifier(birggit.findOneCommit("it's"))).isEqualTo("it's");
+        assertThat(birggit.findOneCommit("x' OR commit.identifier <> '")).isNull();
+        assertThat(identifier(birggit.findOneCommit("abc123_amended"))).isEqualTo("abc123_amended");
+        assertThat(birggit.findOneCommit("abd456")).isNull();
+    }
+
+    @Test
+    public void should_merge_changes_into_the_sorted_base() {
+        CommitPrefixIndex compacting = new CommitPrefixIndex(graphDB, labels, 2);
+        try {
+            assertThat(compacting.baseSize()).isEqualTo(3);
+
+            birggit.commit(new Commit("0001", "fourth"));
+            birggit.delete("abc123");
+            assertThat(compacting.baseSize()).isEqualTo(3);
+            assertThat(identifier(node(compacting.find("abc")))).isEqualTo("abc789");
+
+            birggit.commit(new Commit("0002", "fifth"));
+            assertThat(compacting.baseSize()).isEqualTo(4);
+            assertThat(compacting.find("000").getCandidates()).containsExactly("0001", "0002");
+            assertThat(compacting.find("abc123").isFound()).isFalse();
+        } finally {
+            compacting.unregister();
+        }
+    }
+
+    @Test
+    public void should_prefer_exact_identifiers_over_too_many_longer_ones() {
+        for (int i = 10; i < 20; i++) {
+            birggit.commit(new Commit("c" + i, "base " + i));
+        }
+        assertThat(index.find("c1").isAmbiguous()).isTrue();
+
+        birggit.commit(new Commit("c1", "delta"));
+        assertThat(identifier(birggit.findByPrefix("c1"))).isEqualTo("c1");
+        assertThat(identifier(birggit.findByPrefix("c15"))).isEqualTo("c15");
+    }
+
+    private Node node(PrefixMatch match) {
+        try (Transaction tx = graphDB.beginTx()) {
+            Node result = graphDB.getNodeById(match.getNodeId());
+            tx.success();
+            return result;
+        }
+    }
+
+    private String identifier(Node commit) {
+        try (Transaction tx = graphDB.beginTx()) {
+            String result = commit.getProperty("identifier").toString();
+            tx.success();
+            return result;
+        }
+    }
+}
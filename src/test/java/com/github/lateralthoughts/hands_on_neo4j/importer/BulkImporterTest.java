@@ -0,0 +1,223 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import com.github.lateralthoughts.hands_on_neo4j.branches.BranchTips;
+import com.github.lateralthoughts.hands_on_neo4j.commitgraph.CommitGraphIndex;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.ParentCommit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.annotations.*;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.github.lateralthoughts.hands_on_neo4j.framework.utilities.CommitUtils;
+import com.github.lateralthoughts.hands_on_neo4j.frontend.BIRGGIT;
+import com.github.lateralthoughts.hands_on_neo4j.gc.GarbageCollector;
+import com.github.lateralthoughts.hands_on_neo4j.history.CommitGenerations;
+import com.github.lateralthoughts.hands_on_neo4j.history.LogPaginator;
+import com.github.lateralthoughts.hands_on_neo4j.history.LogStreamer;
+import com.github.lateralthoughts.hands_on_neo4j.history.MergeBaseFinder;
+import com.github.lateralthoughts.hands_on_neo4j.history.RangeWalker;
+import com.github.lateralthoughts.hands_on_neo4j.identifiers.CommitPrefixIndex;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static com.google.common.collect.Collections2.transform;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.neo4j.graphdb.Direction.INCOMING;
+
+public class BulkImporterTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("bulk");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private BulkImporter bulkImporter;
+    @Autowired
+    private LabelFinder labels;
+    @Autowired
+    private PropertyFinder properties;
+    @Autowired
+    private RelationTypeFinder relationshipTypes;
+    @Autowired
+    private UniqueIdentifierFinder uniqueIdentifiers;
+    @Autowired
+    private IndexFinder indices;
+    @Autowired
+    private MergeBaseFinder mergeBases;
+    @Autowired
+    private CommitGenerations generations;
+    @Autowired
+    private LogPaginator logPaginator;
+    @Autowired
+    private LogStreamer logStreamer;
+    @Autowired
+    private RangeWalker rangeWalker;
+    @Autowired
+    private GarbageCollector garbageCollector;
+
+    private String storeDir;
+    private GraphDatabaseService importedDB;
+    private BIRGGIT importedBirggit;
+
+    @Before
+    public void prepare() throws IOException {
+        storeDir = folder.newFolder("store").getAbsolutePath();
+    }
+
+    @After
+    public void shutdown() {
+        if (importedDB != null) {
+            importedDB.shutdown();
+        }
+    }
+
+    @Test
+    public void should_import_history_readable_by_birggit() {
+        ImportReport report = bulkImporter.importHistory(
+            storeDir,
+            new Branch(PROJECT, new Commit("c0", "Initial commit")),
+            ImmutableList.of(
+                new Commit("c1", "First"),
+                new Commit("c2", "Second"),
+                new Commit("c3", "Third")
+            )
+        );
+
+        assertThat(report.getCommits()).isEqualTo(4);
+        openImportedStore();
+        try (Transaction tx = importedDB.beginTx()) {
+            Relationship branch = importedBirggit.findBranch(Branch.DEFAULT_BRANCH_NAME);
+
+            assertThat(branch).isNotNull();
+            assertThat(branch.getEndNode()).hasProperty("identifier", "c3").hasProperty("generation", 4);
+            assertThat(extractedCommitMessages(importedBirggit.log(Branch.DEFAULT_BRANCH_NAME)))
+                .containsExactly("Third", "Second", "First", "Initial commit");
+            assertThat(importedBirggit.findOneCommit("c1")).hasProperty("message", "First");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_let_birggit_resume_on_imported_nodes() {
+        Commit tip = new Commit("c1", "First");
+        bulkImporter.importHistory(
+            storeDir,
+            new Branch(PROJECT, new Commit("c0", "Initial commit")),
+            ImmutableList.of(tip)
+        );
+
+        openImportedStore();
+        try (Transaction tx = importedDB.beginTx()) {
+            Node importedTip = importedBirggit.findBranch(Branch.DEFAULT_BRANCH_NAME).getEndNode();
+
+            assertThat(importedBirggit.commit(tip)).isEqualTo(importedTip);
+            importedBirggit.indexBranch(importedBirggit.commit(new Commit("c2", "Second"), new Branch(PROJECT, tip)));
+            assertThat(extractedCommitMessages(importedBirggit.log(Branch.DEFAULT_BRANCH_NAME)))
+                .containsExactly("Second", "First", "Initial commit");
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_import_shared_commits_once() {
+        Commit root = new Commit("root", "Root");
+        try (BulkImport bulkImport = bulkImporter.open(storeDir)) {
+            bulkImport.createBranch(new Branch(PROJECT, root, "master"));
+            bulkImport.createBranch(new Branch(PROJECT, root, "feature"));
+
+            assertThat(bulkImport.commit(root)).isEqualTo(bulkImport.commit(new Commit("root", "Root")));
+            assertThat(bulkImport.getImportedCommits()).isEqualTo(1);
+        }
+
+        openImportedStore();
+        try (Transaction tx = importedDB.beginTx()) {
+            assertThat(importedBirggit.findBranch("master").getEndNode())
+                .isEqualTo(importedBirggit.findBranch("feature").getEndNode());
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_link_commits_once() {
+        ParentCommit link = new ParentCommit(new Commit("c0", "Initial commit"), new Commit("c1", "First"));
+        try (BulkImport bulkImport = bulkImporter.open(storeDir)) {
+            bulkImport.createBranch(new Branch(PROJECT, new Commit("c1", "First")));
+
+            assertThat(bulkImport.createParentCommit(link)).isEqualTo(bulkImport.createParentCommit(link));
+        }
+
+        openImportedStore();
+        try (Transaction tx = importedDB.beginTx()) {
+            Relationship parent = getOnlyElement(importedBirggit.findOneCommit("c1").getRelationships(INCOMING, relationshipTypes.findRelationshipType(ParentCommit.class)));
+
+            assertThat(parent.getPropertyKeys()).isEmpty();
+            tx.success();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_refuse_to_import_a_branch_twice() {
+        try (BulkImport bulkImport = bulkImporter.open(storeDir)) {
+            bulkImport.createBranch(new Branch(PROJECT, new Commit("c0", "Initial commit")));
+            bulkImport.createBranch(new Branch(PROJECT, new Commit("c1", "First")));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_refuse_to_import_into_an_existing_store() {
+        bulkImporter.importHistory(
+            storeDir,
+            new Branch(PROJECT, new Commit("c0", "Initial commit")),
+            ImmutableList.of(new Commit("c1", "First"))
+        );
+
+        bulkImporter.open(storeDir);
+    }
+
+    private void openImportedStore() {
+        importedDB = new GraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+        importedBirggit = new BIRGGIT(
+            importedDB,
+            labels,
+            properties,
+            relationshipTypes,
+            uniqueIdentifiers,
+            indices,
+            mergeBases,
+            generations,
+            logPaginator,
+            logStreamer,
+            rangeWalker,
+            garbageCollector,
+            new BranchTips(importedDB, relationshipTypes),
+            new CommitUtils(),
+            new CommitPrefixIndex(importedDB, labels),
+            new CommitGraphIndex(importedDB, labels, relationshipTypes)
+        );
+    }
+
+    private static Collection<String> extractedCommitMessages(Collection<Node> commits) {
+        return transform(commits, new Function<Node, String>() {
+            @Override
+            public String apply(Node input) {
+                return input.getProperty("message").toString();
+            }
+        });
+    }
+}
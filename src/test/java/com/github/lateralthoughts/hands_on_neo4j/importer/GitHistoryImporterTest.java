@@ -0,0 +1,105 @@
+package com.github.lateralthoughts.hands_on_neo4j.importer;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.DynamicRelationshipType.withName;
+import static org.neo4j.helpers.collection.IteratorUtil.count;
+
+public class GitHistoryImporterTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("mirror");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private GitHistoryImporter importer;
+
+    private File repository;
+
+    @Before
+    public void prepare() throws Exception {
+        repository = folder.newFolder("repository");
+        git("init", "-q");
+        git("symbolic-ref", "HEAD", "refs/heads/master");
+        commit("Initial commit");
+        git("checkout", "-q", "-b", "feature");
+        commit("Feature work");
+        git("checkout", "-q", "master");
+        commit("Master work");
+        git("merge", "-q", "--no-ff", "-m", "Merge feature", "feature");
+    }
+
+    @Test
+    public void should_mirror_commits_parents_and_branches() throws Exception {
+        ImportReport report = importer.importRepository(repository, PROJECT, 2);
+
+        assertThat(report.getCommits()).isEqualTo(4);
+        try (Transaction tx = graphDB.beginTx()) {
+            Node master = birggit.findBranch("master").getEndNode();
+            Node feature = birggit.findBranch("feature").getEndNode();
+
+            assertThat(master)
+                .hasProperty("identifier", git("rev-parse", "master"))
+                .hasProperty("message", "Merge feature");
+            assertThat(feature).hasProperty("message", "Feature work");
+            assertThat(count(master.getRelationships(withName("HAS_PARENT"), INCOMING))).isEqualTo(2);
+            assertThat(birggit.log("master")).hasSize(4);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void should_only_add_new_commits_on_reimport() throws Exception {
+        importer.importRepository(repository, PROJECT);
+        commit("Later work");
+
+        importer.importRepository(repository, PROJECT);
+
+        try (Transaction tx = graphDB.beginTx()) {
+            assertThat(birggit.findBranch("master").getEndNode()).hasProperty("message", "Later work");
+            assertThat(birggit.findOneCommit(git("rev-parse", "master~1"))).hasProperty("message", "Merge feature");
+            assertThat(birggit.log("master")).hasSize(5);
+            tx.success();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void should_fail_outside_of_a_repository() throws Exception {
+        importer.importRepository(folder.newFolder("not-a-repository"), PROJECT);
+    }
+
+    private void commit(String message) throws Exception {
+        git("commit", "-q", "--allow-empty", "-m", message);
+    }
+
+    private String git(String... arguments) throws Exception {
+        Process process = new ProcessBuilder(ImmutableList.<String>builder()
+            .add("git", "-c", "user.name=BIRGGIT", "-c", "user.email=birggit@example.com")
+            .add(arguments)
+            .build())
+            .directory(repository)
+            .redirectErrorStream(true)
+            .start();
+        String output = CharStreams.toString(new InputStreamReader(process.getInputStream(), Charsets.UTF_8)).trim();
+        assertThat(process.waitFor()).as(output).isEqualTo(0);
+        return output;
+    }
+}
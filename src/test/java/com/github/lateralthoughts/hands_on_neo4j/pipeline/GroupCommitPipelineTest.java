@@ -0,0 +1,105 @@
+package com.github.lateralthoughts.hands_on_neo4j.pipeline;
+
+import com.github.lateralthoughts.hands_on_neo4j.domain.Branch;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Commit;
+import com.github.lateralthoughts.hands_on_neo4j.domain.Project;
+import com.github.lateralthoughts.hands_on_neo4j.frontend.BIRGGIT;
+import com.github.lateralthoughts.hands_on_neo4j.framework.suite.GraphTestSuite;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Relationship;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.lateralthoughts.hands_on_neo4j.framework.assertions.Neo4jAssertions.assertThat;
+import static java.lang.String.format;
+
+public class GroupCommitPipelineTest extends GraphTestSuite {
+
+    private static final Project PROJECT = new Project("pipeline");
+
+    @Autowired
+    private GroupCommitPipeline pipeline;
+
+    @Before
+    public void prepare() {
+        birggit.init(new Branch(PROJECT, new Commit("c0", "c0")), new Commit("c1", "c1"));
+        pipeline.start(16, 20, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    public void should_apply_queued_commits_in_order() throws Exception {
+        List<ListenableFuture<Relationship>> results = new ArrayList<>();
+        for (int i = 2; i < 42; i++) {
+            String identifier = format("c%d", i);
+            results.add(pipeline.commit(new Commit(identifier, identifier), new Branch(PROJECT, new Commit("c1", "c1"))));
+        }
+
+        assertThat(Futures.allAsList(results).get(10, TimeUnit.SECONDS)).hasSize(40);
+        assertThat(birggit.log(Branch.DEFAULT_BRANCH_NAME, 100)).hasSize(42);
+    }
+
+    @Test
+    public void should_only_fail_the_failing_write_of_a_batch() throws Exception {
+        ListenableFuture<Relationship> before = pipeline.commit(new Commit("c2", "c2"), new Branch(PROJECT, new Commit("c1", "c1")));
+        ListenableFuture<Relationship> failing = pipeline.commit(new Commit("c3", "c3"), new Branch(PROJECT, new Commit("c1", "c1"), "unknown"));
+        ListenableFuture<Object> alsoFailing = pipeline.submit(new Function<BIRGGIT, Object>() {
+            @Override
+            public Object apply(BIRGGIT input) {
+                throw new IllegalStateException("boom");
+            }
+        });
+        ListenableFuture<Relationship> after = pipeline.commit(new Commit("c4", "c4"), new Branch(PROJECT, new Commit("c1", "c1")));
+
+        assertThat(before.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(after.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(failed(failing)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(failed(alsoFailing)).isInstanceOf(IllegalStateException.class);
+        assertThat(birggit.log(Branch.DEFAULT_BRANCH_NAME, 100)).hasSize(4);
+    }
+
+    @Test
+    public void should_settle_every_write_once_stopped() throws Exception {
+        List<ListenableFuture<Relationship>> results = new ArrayList<>();
+        for (int i = 2; i < 202; i++) {
+            String identifier = format("c%d", i);
+            results.add(pipeline.commit(new Commit(identifier, identifier), new Branch(PROJECT, new Commit("c1", "c1"))));
+        }
+        pipeline.stop();
+
+        int applied = 0;
+        for (ListenableFuture<Relationship> result : results) {
+            assertThat(result.isDone()).isTrue();
+            try {
+                result.get();
+                applied++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class).hasMessage("Pipeline stopped");
+            }
+        }
+        assertThat(pipeline.isRunning()).isFalse();
+        assertThat(birggit.log(Branch.DEFAULT_BRANCH_NAME, 300)).hasSize(2 + applied);
+    }
+
+    private static Throwable failed(ListenableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Write should have failed");
+    }
+}